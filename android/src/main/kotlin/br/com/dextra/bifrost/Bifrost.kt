@@ -1,70 +1,357 @@
 package br.com.dextra.bifrost
 
 import android.content.Context
+import android.os.Handler
+import android.os.Looper
+import androidx.annotation.VisibleForTesting
+import io.flutter.FlutterInjector
 import io.flutter.embedding.engine.FlutterEngine
 import io.flutter.embedding.engine.FlutterEngineCache
 import io.flutter.embedding.engine.dart.DartExecutor
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler
 import java.lang.ref.WeakReference
+import java.util.concurrent.Executor
 import java.util.concurrent.atomic.AtomicInteger
 
 object Bifrost {
 
+  private const val ENGINE_ID = "io.flutter.bifrost"
+
   private val nextCode = AtomicInteger(1)
 
+  private var engineRef: FlutterEngine? = null
+  private var enginePool: BifrostEnginePool? = null
+  private var applicationContext: Context? = null
+  private var commonHandler: MethodCallHandler? = null
+  private var commonHandlerPolicy = BifrostThreadingPolicy.MAIN
+  private var isWarmingUp = false
+  private val pendingEngineActions = arrayListOf<() -> Unit>()
+
+  /**
+   * flutter engine shared by the bifrost pages. If the engine is still warming up,
+   * this call waits for the loader initialization and creates it right away.
+   */
+  @JvmStatic
+  val engine: FlutterEngine
+    get() = engineRef ?: warmUpNow()
+
+  /**
+   * true if the flutter engine has already been created
+   */
   @JvmStatic
-  lateinit var engine: FlutterEngine
-    private set
+  val isEngineReady: Boolean
+    get() = engineRef != null
 
   internal var pluginRef: WeakReference<BifrostPlugin>? = null
 
+  /**
+   * codec used to store page arguments and send them to flutter
+   */
+  @JvmStatic
+  var argumentCodec: BifrostArgumentCodec = BifrostStandardArgumentCodec()
+
+  /**
+   * size, bitmap config and memory budget of the snapshots shown in place of the pages detached
+   * from the engine
+   */
+  @JvmStatic
+  var snapshotConfig = BifrostSnapshotConfig()
+
+  /**
+   * memory budget in bytes for the page arguments, the least recently used ones are spilled
+   * to disk once it is exceeded
+   */
+  @JvmStatic
+  var argumentsMemoryLimit: Int
+    get() = BifrostArgumentStore.maxMemoryBytes
+    set(value) {
+      BifrostArgumentStore.maxMemoryBytes = value
+    }
+
+  /**
+   * record the traffic of the bifrost channels, see [metrics]. It must be called before
+   * [startFlutterEngine], and the [sink] receives a snapshot every [reportIntervalMillis].
+   */
+  @JvmStatic
+  @JvmOverloads
+  fun enableMetrics(sink: BifrostMetricsSink? = null, reportIntervalMillis: Long = 10_000) {
+    BifrostChannelMetrics.enable(sink, reportIntervalMillis)
+  }
+
+  /**
+   * snapshot of the traffic on the bifrost channels and the page timings recorded since
+   * [enableMetrics]
+   */
+  @JvmStatic
+  fun metrics(): BifrostMetrics {
+    return BifrostChannelMetrics.snapshot()
+  }
+
+  /**
+   * navigation counters, stack depths and push-to-first-frame latencies of the flutter pages.
+   * They are queried from every running engine, so the [callback] runs asynchronously on the
+   * platform thread. Latencies are recorded only after [enableMetrics].
+   */
+  @JvmStatic
+  fun navigationMetrics(callback: (BifrostNavigationMetrics) -> Unit) {
+    whenEngineReady { BifrostCoordinatorChannel.navigationMetrics(callback) }
+  }
+
+  /**
+   * create the flutter page of [route] before its host, so the routes are built and laid out
+   * while the native transition starts and its first frame only has to be painted. Pass the
+   * handle to `BifrostFlutterActivity.createIntent` or `BifrostFlutterFragment.newInstance`, or
+   * release it if unused. Pages of the multi-engine mode are created with their engine instead.
+   */
+  @JvmStatic
+  @JvmOverloads
+  fun prewarm(route: String, arguments: Any? = null): BifrostPageHandle {
+    return BifrostPageHandle.create(route, arguments, prewarm = true)
+  }
+
+  /**
+   * pages whose host is alive or whose flutter page was not unmounted yet, from the bottom to
+   * the top of the stack. Must be called from the platform thread.
+   */
+  @JvmStatic
+  fun pages(): List<BifrostPage> {
+    return BifrostPageRegistry.pages()
+  }
+
+  /**
+   * pages whose host was destroyed but are still mounted by flutter a few seconds later, or
+   * whose host was garbage collected without being destroyed. Must be called from the platform
+   * thread.
+   */
+  @JvmStatic
+  fun leakedPages(): List<BifrostPage> {
+    return BifrostPageRegistry.leakedPages()
+  }
+
   /**
    *  start flutter engine
    *
    *  @param context Application Context
    *  @param commonHandler Common method call handler
+   *  @param warmUpPolicy When the engine should be created, see [BifrostWarmUpPolicy]
+   *  @param maxPageEngines Enables the multi-engine mode when greater than zero: each page gets
+   *  its own engine spawned from a shared engine group, keeping at most this many alive. It
+   *  should not be lower than the number of pages visible at the same time. No engine is created
+   *  up front in this mode, the [warmUpPolicy] only initializes the flutter loader.
+   *  @param commonHandlerPolicy Thread where the [commonHandler] runs, see [BifrostThreadingPolicy]
    *
-   *  @return true if plugins registered otherwise return false.
+   *  @return true if plugins registered otherwise return false. Deferred policies always
+   *  return false because the engine does not exist yet.
    */
   @JvmStatic
+  @JvmOverloads
   fun startFlutterEngine(context: Context,
-                         commonHandler: MethodCallHandler? = null): Boolean {
-    engine = FlutterEngine(context, null, true)
-    FlutterEngineCache.getInstance().put("io.flutter.bifrost", engine)
-    engine.dartExecutor.executeDartEntrypoint(DartExecutor.DartEntrypoint.createDefault())
+                         commonHandler: MethodCallHandler? = null,
+                         warmUpPolicy: BifrostWarmUpPolicy = BifrostWarmUpPolicy.EAGER,
+                         maxPageEngines: Int = 0,
+                         commonHandlerPolicy: BifrostThreadingPolicy = BifrostThreadingPolicy.MAIN): Boolean {
+    this.applicationContext = context.applicationContext
+    this.commonHandler = commonHandler
+    this.commonHandlerPolicy = commonHandlerPolicy
+
+    if (maxPageEngines > 0) {
+      enginePool = BifrostEnginePool(context.applicationContext, maxPageEngines)
+    }
 
-    if (commonHandler != null) {
-      BifrostCommonChannel(engine.dartExecutor, commonHandler)
+    when (warmUpPolicy) {
+      BifrostWarmUpPolicy.EAGER -> if (enginePool != null) initializeLoader() else warmUpNow()
+      BifrostWarmUpPolicy.IDLE -> Looper.myQueue().addIdleHandler {
+        warmUpAsync()
+        false
+      }
+      BifrostWarmUpPolicy.FIRST_USE -> Unit
+      BifrostWarmUpPolicy.BACKGROUND -> warmUpAsync()
     }
 
     return pluginRef != null
   }
 
+  /**
+   * run [action] on the main thread as soon as the engine is created, starting the warm-up
+   * if it has not started yet.
+   */
+  internal fun whenEngineReady(action: () -> Unit) {
+    // page engines are spawned on demand in the multi-engine mode, there is nothing to wait for
+    if (engineRef != null || enginePool != null) {
+      action()
+      return
+    }
+    pendingEngineActions.add(action)
+    warmUpAsync()
+  }
+
+  private fun warmUpAsync() {
+    if (engineRef != null || isWarmingUp) return
+    isWarmingUp = true
+
+    val context = requireContext()
+    val loader = FlutterInjector.instance().flutterLoader()
+    // extracts the assets and loads the native library on a background thread
+    loader.startInitialization(context)
+    loader.ensureInitializationCompleteAsync(context, null, Handler(Looper.getMainLooper())) {
+      // the pages spawn their own engines in the multi-engine mode
+      if (enginePool == null) createEngine(context) else isWarmingUp = false
+    }
+  }
+
+  private fun warmUpNow(): FlutterEngine {
+    engineRef?.let { return it }
+
+    initializeLoader()
+    return createEngine(requireContext())
+  }
+
+  private fun initializeLoader() {
+    val context = requireContext()
+    val loader = FlutterInjector.instance().flutterLoader()
+    loader.startInitialization(context)
+    // waits for the background initialization started by a deferred policy, if any
+    loader.ensureInitializationComplete(context, null)
+  }
+
+  private fun createEngine(context: Context): FlutterEngine {
+    engineRef?.let { return it }
+
+    val pool = enginePool
+    val engine = if (pool != null) {
+      pool.group.createAndRunDefaultEngine(context)
+    } else {
+      FlutterEngine(context, null, true).apply {
+        dartExecutor.executeDartEntrypoint(DartExecutor.DartEntrypoint.createDefault())
+      }
+    }
+    onEngineCreated(engine)
+    return engine
+  }
+
+  /**
+   * run on a stand-in [engine] instead of creating one, for the JVM tests
+   */
+  @VisibleForTesting
+  internal fun startWithEngine(context: Context, engine: FlutterEngine) {
+    applicationContext = context.applicationContext
+    onEngineCreated(engine)
+  }
+
+  /**
+   * forget the engine and its pages, so the next test starts from scratch
+   */
+  @VisibleForTesting
+  internal fun reset() {
+    engineRef?.let {
+      BifrostCoordinatorChannel.detach(it.dartExecutor)
+      FlutterEngineCache.getInstance().remove(ENGINE_ID)
+    }
+    engineRef = null
+    enginePool = null
+    isWarmingUp = false
+    pendingEngineActions.clear()
+  }
+
+  private fun onEngineCreated(engine: FlutterEngine) {
+    FlutterEngineCache.getInstance().put(ENGINE_ID, engine)
+    engineRef = engine
+    isWarmingUp = false
+
+    installChannels(engine)
+
+    val actions = ArrayList(pendingEngineActions)
+    pendingEngineActions.clear()
+    actions.forEach { it.invoke() }
+  }
+
+  private fun installChannels(engine: FlutterEngine) {
+    val messenger = BifrostChannelMetrics.wrap(engine.dartExecutor)
+    commonHandler?.let { BifrostCommonChannel(messenger, it, commonHandlerPolicy) }
+    BifrostNotificationChannel.attach(messenger)
+  }
+
+  /**
+   * engine that renders the page, in the multi-engine mode it is spawned on demand and
+   * [onCreated] is invoked so the page can be created in the new isolate.
+   */
+  internal fun engineForPage(pageId: Int,
+                             onCreated: () -> Unit,
+                             onReclaim: () -> Unit): FlutterEngine {
+    val pool = enginePool ?: return engine
+    // the group runs its first engine itself, so no shared engine is created in this mode
+    return pool.obtain(requireContext(), pageId, onReclaim) { pageEngine ->
+      installChannels(pageEngine)
+      onCreated()
+    }
+  }
+
+  /**
+   * engine currently running the page or null if it has none
+   */
+  internal fun engineOfPage(pageId: Int): FlutterEngine? {
+    val pool = enginePool ?: return engineRef
+    return pool.get(pageId)
+  }
+
+  /**
+   * destroy the page engine in the multi-engine mode
+   */
+  internal fun releasePage(pageId: Int) {
+    val pool = enginePool ?: return
+    pool.release(pageId)
+    // the page can no longer be unmounted by its engine
+    BifrostPageRegistry.onDisposed(pageId)
+  }
+
+  internal fun requireContext(): Context {
+    return applicationContext
+        ?: throw IllegalStateException("Bifrost.startFlutterEngine must be called first")
+  }
+
   internal fun generatePageId(): Int {
     return nextCode.getAndIncrement()
   }
 
   /**
-   * receive notification from flutter
+   * receive notification from flutter, several callbacks may receive the same [key] and a key
+   * ending with `*` receives every notification with that prefix. The [callback] runs on the
+   * [executor], by default on the platform thread.
    */
   @JvmStatic
-  fun registerNotification(key: String, callback: (arguments: Any?) -> Unit) {
-    BifrostNotificationChannel.register(key, callback)
+  @JvmOverloads
+  fun registerNotification(key: String,
+                           executor: Executor = BifrostExecutors.INLINE,
+                           callback: (arguments: Any?) -> Unit) {
+    BifrostNotificationChannel.register(key, executor, callback)
   }
 
   /**
-   * receive notification from flutter
+   * receive notification from flutter, see the overload above. A [weak] callback is only
+   * weakly referenced, so it is unregistered once collected.
    */
   @JvmStatic
-  fun registerNotification(key: String, callback: BifrostNotificationCallback) {
-    BifrostNotificationChannel.register(key, callback)
+  @JvmOverloads
+  fun registerNotification(key: String,
+                           callback: BifrostNotificationCallback,
+                           executor: Executor = BifrostExecutors.INLINE,
+                           weak: Boolean = false) {
+    BifrostNotificationChannel.register(key, callback, executor, weak)
   }
 
   /**
-   * unregister notification from flutter
+   * unregister every callback of the notification from flutter
    */
   @JvmStatic
   fun unregisterNotification(key: String) {
     BifrostNotificationChannel.unregister(key)
   }
+
+  /**
+   * unregister a callback of the notification from flutter
+   */
+  @JvmStatic
+  fun unregisterNotification(key: String, callback: BifrostNotificationCallback) {
+    BifrostNotificationChannel.unregister(key, callback)
+  }
 }
@@ -0,0 +1,18 @@
+package br.com.dextra.bifrost
+
+/**
+ * Encodes the page arguments stored in the page Intent or Bundle. The encoded bytes are sent
+ * to dart as they are, so they must be readable by the dart StandardMessageCodec.
+ */
+interface BifrostArgumentCodec {
+
+  /**
+   * encode [arguments], throws IllegalArgumentException if they are not supported
+   */
+  fun encode(arguments: Any?): ByteArray
+
+  /**
+   * decode bytes produced by [encode]
+   */
+  fun decode(bytes: ByteArray): Any?
+}
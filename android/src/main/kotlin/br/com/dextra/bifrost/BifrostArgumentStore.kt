@@ -0,0 +1,173 @@
+package br.com.dextra.bifrost
+
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.channels.FileChannel
+import java.util.concurrent.TimeUnit
+
+/**
+ * Keeps the encoded page arguments out of Intents and Bundles, which only carry a handle.
+ *
+ * Arguments stay in memory up to [maxMemoryBytes], the least recently used ones are spilled
+ * to memory-mapped files. Arguments of pages that save their state are spilled as well, so
+ * they survive the process death. Files are written and read on [BifrostExecutors.BACKGROUND],
+ * away from the navigation, and the arguments are served from memory until their file is complete.
+ */
+internal object BifrostArgumentStore {
+
+  private const val DIRECTORY = "bifrost_arguments"
+  private val MAX_SPILL_AGE = TimeUnit.DAYS.toMillis(1)
+
+  // distinguishes handles created by different processes
+  private val session = (System.currentTimeMillis() / 1000).toInt()
+
+  private val entries = LinkedHashMap<Long, ByteArray>(16, 0.75f, true)
+  private var memoryBytes = 0
+
+  // arguments whose file is being written, not counted in memoryBytes
+  private val spilling = HashMap<Long, ByteArray>()
+
+  // handles of this process that were spilled, their file is written or being written
+  private val spilled = HashSet<Long>()
+
+  var maxMemoryBytes = 4 * 1024 * 1024
+
+  private val directory: File by lazy {
+    val directory = File(Bifrost.requireContext().cacheDir, DIRECTORY)
+    directory.mkdirs()
+    pruneSpilledFiles(directory)
+    directory
+  }
+
+  @Synchronized
+  fun put(pageId: Int, arguments: ByteArray): Long {
+    val handle = (session.toLong() shl 32) or (pageId.toLong() and 0xffffffffL)
+    entries[handle] = arguments
+    memoryBytes += arguments.size
+    trimMemory()
+    return handle
+  }
+
+  /**
+   * arguments of the [handle], passed right away to the [callback] when they are in memory.
+   * Spilled ones are read on [BifrostExecutors.BACKGROUND] and the [callback] is posted to the
+   * main thread.
+   */
+  fun get(handle: Long, callback: (ByteArray?) -> Unit) {
+    val arguments = peek(handle)
+    if (arguments != null || !synchronized(this) { hasSpillFile(handle) }) {
+      callback(arguments)
+      return
+    }
+    BifrostExecutors.BACKGROUND.execute {
+      val spilled = readSpilled(handle)
+      BifrostExecutors.MAIN.execute { callback(spilled) }
+    }
+  }
+
+  /**
+   * arguments kept in memory, without reading the spilled ones
+   */
+  @Synchronized
+  fun peek(handle: Long): ByteArray? {
+    return entries[handle] ?: spilling[handle]
+  }
+
+  /**
+   * write the arguments to disk so that they survive the process death
+   */
+  @Synchronized
+  fun persist(handle: Long) {
+    val arguments = entries[handle] ?: return
+    spill(handle, arguments)
+  }
+
+  @Synchronized
+  fun remove(handle: Long) {
+    entries.remove(handle)?.let { memoryBytes -= it.size }
+    val hasFile = hasSpillFile(handle)
+    spilled.remove(handle)
+    // a write in flight deletes its own file once it finds the arguments removed
+    if (spilling.remove(handle) == null && hasFile) {
+      BifrostExecutors.BACKGROUND.execute { spillFile(handle).delete() }
+    }
+  }
+
+  /**
+   * true if the arguments may have a file, either spilled by this process or by a previous one
+   */
+  private fun hasSpillFile(handle: Long): Boolean {
+    return spilled.contains(handle) || (handle != 0L && (handle ushr 32).toInt() != session)
+  }
+
+  private fun trimMemory() {
+    val iterator = entries.entries.iterator()
+    while (memoryBytes > maxMemoryBytes && iterator.hasNext()) {
+      val eldest = iterator.next()
+      spill(eldest.key, eldest.value)
+      memoryBytes -= eldest.value.size
+      iterator.remove()
+    }
+  }
+
+  /**
+   * write the arguments in the background, a single write per handle is in flight
+   */
+  private fun spill(handle: Long, arguments: ByteArray) {
+    if (spilling.put(handle, arguments) != null) return
+    spilled.add(handle)
+    BifrostExecutors.BACKGROUND.execute {
+      val file = spillFile(handle)
+      try {
+        if (!file.exists()) {
+          writeSpilled(file, arguments)
+        }
+      } catch (e: IOException) {
+        // still served from memory until they are removed
+        BifrostLogger.e("Bifrost", e) { "Could not spill the arguments $handle" }
+        return@execute
+      }
+      val removed = synchronized(BifrostArgumentStore) { spilling.remove(handle) == null }
+      if (removed) {
+        file.delete()
+      }
+    }
+  }
+
+  private fun spillFile(handle: Long): File {
+    return File(directory, java.lang.Long.toHexString(handle))
+  }
+
+  private fun writeSpilled(file: File, arguments: ByteArray) {
+    RandomAccessFile(file, "rw").use {
+      it.setLength(arguments.size.toLong())
+      it.channel.map(FileChannel.MapMode.READ_WRITE, 0, arguments.size.toLong()).put(arguments)
+    }
+  }
+
+  private fun readSpilled(handle: Long): ByteArray? {
+    val file = spillFile(handle)
+    if (!file.exists()) return null
+    return try {
+      RandomAccessFile(file, "r").use {
+        val size = it.length()
+        val arguments = ByteArray(size.toInt())
+        it.channel.map(FileChannel.MapMode.READ_ONLY, 0, size).get(arguments)
+        arguments
+      }
+    } catch (e: IOException) {
+      BifrostLogger.e("Bifrost", e) { "Could not read the spilled arguments $handle" }
+      null
+    }
+  }
+
+  private fun pruneSpilledFiles(directory: File) {
+    BifrostExecutors.BACKGROUND.execute {
+      val limit = System.currentTimeMillis() - MAX_SPILL_AGE
+      directory.listFiles()?.forEach {
+        if (it.lastModified() < limit) it.delete()
+      }
+    }
+  }
+}
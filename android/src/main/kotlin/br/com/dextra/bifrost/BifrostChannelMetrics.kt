@@ -0,0 +1,242 @@
+package br.com.dextra.bifrost
+
+import android.os.Handler
+import android.os.Looper
+import io.flutter.plugin.common.BinaryMessenger
+import java.lang.reflect.InvocationHandler
+import java.lang.reflect.InvocationTargetException
+import java.lang.reflect.Method
+import java.lang.reflect.Proxy
+import java.nio.ByteBuffer
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Records the traffic of the bifrost channels by wrapping their [BinaryMessenger].
+ *
+ * Method channel messages are grouped by the method name, read from the encoded call without
+ * decoding it, and coordinator messages by opcode.
+ */
+internal object BifrostChannelMetrics {
+
+  private const val CHANNEL_PREFIX = "bifrost/"
+  private const val COORDINATOR_CHANNEL = "bifrost/coordinator"
+
+  // type and size markers of the standard method codec
+  private const val STRING_TYPE: Byte = 7
+  private const val MAX_SHORT_SIZE = 254
+  private const val ERROR_ENVELOPE: Byte = 1
+
+  @Volatile
+  var isEnabled = false
+    private set
+
+  private val channels = ConcurrentHashMap<String, ChannelMetrics>()
+
+  private val handler by lazy { Handler(Looper.getMainLooper()) }
+  private var sink: BifrostMetricsSink? = null
+  private var reportIntervalMillis = 0L
+
+  private val report = object : Runnable {
+    override fun run() {
+      sink?.onMetrics(snapshot())
+      handler.postDelayed(this, reportIntervalMillis)
+    }
+  }
+
+  fun enable(sink: BifrostMetricsSink?, reportIntervalMillis: Long) {
+    isEnabled = true
+    this.sink = sink
+    this.reportIntervalMillis = reportIntervalMillis
+    handler.removeCallbacks(report)
+    if (sink != null) {
+      handler.postDelayed(report, reportIntervalMillis)
+    }
+  }
+
+  fun wrap(messenger: BinaryMessenger): BinaryMessenger {
+    return if (isEnabled) InstrumentedMessenger(messenger).proxy() else messenger
+  }
+
+  fun snapshot(): BifrostMetrics {
+    val methods = arrayListOf<BifrostMethodMetrics>()
+    for (channel in channels.values) {
+      channel.methods.forEach { methods.add(it.snapshot()) }
+    }
+    return BifrostPageMetrics.snapshot(methods)
+  }
+
+  private fun channelOf(name: String): ChannelMetrics? {
+    if (!name.startsWith(CHANNEL_PREFIX)) return null
+    return channels[name] ?: ChannelMetrics(name).let { channels.putIfAbsent(name, it) ?: it }
+  }
+
+  private class ChannelMetrics(val name: String) {
+
+    private val isCoordinator = name == COORDINATOR_CHANNEL
+    private val opcodes = arrayOfNulls<MethodMetrics>(256)
+
+    val methods = CopyOnWriteArrayList<MethodMetrics>()
+
+    /**
+     * metrics of the message in the first [size] bytes of [message]
+     */
+    fun methodOf(message: ByteBuffer?, size: Int): MethodMetrics {
+      if (message == null || size == 0) return methodNamed("<empty>")
+      if (isCoordinator) {
+        val opcode = message.get(0).toInt() and 0xff
+        return opcodes[opcode] ?: synchronized(this) {
+          opcodes[opcode] ?: methodNamed(BifrostCoordinatorProtocol.nameOf(opcode.toByte())).also {
+            opcodes[opcode] = it
+          }
+        }
+      }
+      if (size < 2 || message.get(0) != STRING_TYPE) return methodNamed("<unknown>")
+      val length = message.get(1).toInt() and 0xff
+      if (length >= MAX_SHORT_SIZE || 2 + length > size) return methodNamed("<unknown>")
+      for (method in methods) {
+        if (method.matches(message, 2, length)) return method
+      }
+      val bytes = ByteArray(length)
+      for (i in 0 until length) bytes[i] = message.get(2 + i)
+      return methodNamed(String(bytes, Charsets.UTF_8))
+    }
+
+    @Synchronized
+    private fun methodNamed(method: String): MethodMetrics {
+      methods.firstOrNull { it.name == method }?.let { return it }
+      return MethodMetrics(name, method, !isCoordinator).also { methods.add(it) }
+    }
+  }
+
+  private class MethodMetrics(val channel: String, val name: String, private val isMethodCall: Boolean) {
+
+    private val nameBytes = name.toByteArray(Charsets.UTF_8)
+    private val calls = AtomicLong()
+    private val bytesSent = AtomicLong()
+    private val bytesReceived = AtomicLong()
+    private val errors = AtomicLong()
+    private val notImplemented = AtomicLong()
+    private val latency = BifrostLatencyHistogram()
+
+    fun matches(message: ByteBuffer, offset: Int, length: Int): Boolean {
+      if (length != nameBytes.size) return false
+      for (i in 0 until length) {
+        if (message.get(offset + i) != nameBytes[i]) return false
+      }
+      return true
+    }
+
+    fun onSent(size: Int) {
+      calls.incrementAndGet()
+      bytesSent.addAndGet(size.toLong())
+    }
+
+    fun onReceived(size: Int) {
+      calls.incrementAndGet()
+      bytesReceived.addAndGet(size.toLong())
+    }
+
+    fun onReply(reply: ByteBuffer?, size: Int, isSent: Boolean, startNanos: Long) {
+      latency.record((System.nanoTime() - startNanos) / 1000)
+      if (isSent) bytesSent.addAndGet(size.toLong()) else bytesReceived.addAndGet(size.toLong())
+      if (isMethodCall) {
+        when {
+          reply == null || size == 0 -> notImplemented.incrementAndGet()
+          reply.get(0) == ERROR_ENVELOPE -> errors.incrementAndGet()
+        }
+      }
+    }
+
+    fun snapshot(): BifrostMethodMetrics {
+      return BifrostMethodMetrics(channel, name, calls.get(), bytesSent.get(), bytesReceived.get(),
+          errors.get(), notImplemented.get(), latency.snapshot())
+    }
+  }
+
+  /**
+   * Forwards every [BinaryMessenger] method to the [delegate], only the messages of the bifrost
+   * channels are recorded. It is a dynamic proxy so that the methods added by newer embeddings,
+   * like the task queues, are forwarded without requiring them at compile time.
+   */
+  private class InstrumentedMessenger(private val delegate: BinaryMessenger) : InvocationHandler {
+
+    fun proxy(): BinaryMessenger {
+      return Proxy.newProxyInstance(BinaryMessenger::class.java.classLoader,
+          arrayOf(BinaryMessenger::class.java), this) as BinaryMessenger
+    }
+
+    override fun invoke(proxy: Any, method: Method, args: Array<Any?>?): Any? {
+      val arguments = args ?: arrayOf()
+      when (method.name) {
+        "equals" -> return proxy === arguments[0]
+        "hashCode" -> return System.identityHashCode(proxy)
+        "toString" -> return "InstrumentedMessenger($delegate)"
+        "send" -> if (arguments.size >= 2) {
+          send(arguments[0] as String, arguments[1] as ByteBuffer?,
+              arguments.getOrNull(2) as BinaryMessenger.BinaryReply?)
+          return null
+        }
+        // the task queue overload has the handler at the same position
+        "setMessageHandler" -> if (arguments.size >= 2) {
+          arguments[1] = instrument(arguments[0] as String,
+              arguments[1] as BinaryMessenger.BinaryMessageHandler?)
+        }
+      }
+      try {
+        return method.invoke(delegate, *arguments)
+      } catch (e: InvocationTargetException) {
+        throw e.targetException
+      }
+    }
+
+    private fun send(channel: String,
+                     message: ByteBuffer?,
+                     callback: BinaryMessenger.BinaryReply?) {
+      val method = recordSent(channel, message)
+      // fire and forget messages have no reply to time
+      if (method == null || callback == null) {
+        delegate.send(channel, message, callback)
+        return
+      }
+      val startNanos = System.nanoTime()
+      delegate.send(channel, message) { reply ->
+        method.onReply(reply, reply?.remaining() ?: 0, false, startNanos)
+        callback.reply(reply)
+      }
+    }
+
+    /**
+     * count an outgoing message, returns its method metrics or null outside the bifrost channels
+     */
+    private fun recordSent(channel: String, message: ByteBuffer?): MethodMetrics? {
+      val channelMetrics = channelOf(channel) ?: return null
+      // outgoing messages end at their position
+      val size = message?.position() ?: 0
+      val method = channelMetrics.methodOf(message, size)
+      method.onSent(size)
+      return method
+    }
+
+    private fun instrument(
+        channel: String,
+        handler: BinaryMessenger.BinaryMessageHandler?
+    ): BinaryMessenger.BinaryMessageHandler? {
+      val channelMetrics = channelOf(channel)
+      if (handler == null || channelMetrics == null) {
+        return handler
+      }
+      return BinaryMessenger.BinaryMessageHandler { message, reply ->
+        val size = message?.remaining() ?: 0
+        val method = channelMetrics.methodOf(message, size)
+        method.onReceived(size)
+        val startNanos = System.nanoTime()
+        handler.onMessage(message) { response ->
+          method.onReply(response, response?.position() ?: 0, true, startNanos)
+          reply.reply(response)
+        }
+      }
+    }
+  }
+}
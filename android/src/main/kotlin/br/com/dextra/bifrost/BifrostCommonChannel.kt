@@ -1,13 +1,119 @@
 package br.com.dextra.bifrost
 
+import android.os.Looper
 import io.flutter.plugin.common.BinaryMessenger
+import io.flutter.plugin.common.MethodCall
 import io.flutter.plugin.common.MethodChannel
+import io.flutter.plugin.common.MethodCodec
+import io.flutter.plugin.common.StandardMethodCodec
+import java.util.concurrent.Executor
 
-internal class BifrostCommonChannel(messenger: BinaryMessenger, handler: MethodChannel.MethodCallHandler) {
+internal class BifrostCommonChannel(messenger: BinaryMessenger,
+                                    handler: MethodChannel.MethodCallHandler,
+                                    policy: BifrostThreadingPolicy) {
 
-  private val channel by lazy { MethodChannel(messenger, "bifrost/common") }
+  companion object {
+    private const val NAME = "bifrost/common"
+  }
 
   init {
-    channel.setMethodCallHandler(handler)
+    val taskQueueChannel = if (policy.usesTaskQueue) taskQueueChannel(messenger) else null
+    when {
+      // already on the task queue, only the main thread methods are dispatched
+      taskQueueChannel != null -> taskQueueChannel.setMethodCallHandler(DispatchingHandler(handler,
+          BifrostExecutors.INLINE, BifrostExecutors.MAIN, policy.mainThreadMethods, false))
+      policy === BifrostThreadingPolicy.MAIN ->
+        MethodChannel(messenger, NAME).setMethodCallHandler(handler)
+      else -> MethodChannel(messenger, NAME).setMethodCallHandler(DispatchingHandler(handler,
+          policy.executor, BifrostExecutors.INLINE, policy.mainThreadMethods, true))
+    }
+  }
+
+  /**
+   * channel whose handler runs on a background task queue of the [messenger], looked up
+   * reflectively since the task queues only exist from Flutter 2.5. Returns null without them.
+   */
+  private fun taskQueueChannel(messenger: BinaryMessenger): MethodChannel? {
+    return try {
+      val taskQueue = BinaryMessenger::class.java.getMethod("makeBackgroundTaskQueue")
+          .invoke(messenger)
+      val taskQueueClass = Class.forName("io.flutter.plugin.common.BinaryMessenger\$TaskQueue")
+      MethodChannel::class.java
+          .getConstructor(BinaryMessenger::class.java, String::class.java,
+              MethodCodec::class.java, taskQueueClass)
+          .newInstance(messenger, NAME, StandardMethodCodec.INSTANCE, taskQueue)
+    } catch (e: Exception) {
+      BifrostLogger.w("Bifrost") {
+        "No background task queue, the common handler runs on the background executor"
+      }
+      null
+    }
+  }
+
+  /**
+   * runs the calls on [executor] and the [mainThreadMethods] on [mainExecutor]. Replies are
+   * posted to the main thread when [repliesOnMainThread], the task queues take them from any
+   * thread.
+   */
+  private class DispatchingHandler(
+      private val handler: MethodChannel.MethodCallHandler,
+      private val executor: Executor,
+      private val mainExecutor: Executor,
+      private val mainThreadMethods: Set<String>,
+      private val repliesOnMainThread: Boolean
+  ) : MethodChannel.MethodCallHandler {
+
+    override fun onMethodCall(call: MethodCall, result: MethodChannel.Result) {
+      val isMainThreadMethod = mainThreadMethods.contains(call.method)
+      if (isMainThreadMethod && mainExecutor === BifrostExecutors.INLINE) {
+        handler.onMethodCall(call, result)
+        return
+      }
+      val dispatchedResult = DispatchedResult(result, repliesOnMainThread && !isMainThreadMethod)
+      (if (isMainThreadMethod) mainExecutor else executor).execute {
+        try {
+          handler.onMethodCall(call, dispatchedResult)
+        } catch (e: RuntimeException) {
+          if (dispatchedResult.hasReplied) {
+            // a second reply would be an illegal state for the messenger
+            BifrostLogger.e("Bifrost", e) { "Failed after replying to ${call.method}" }
+          } else {
+            // same reply as the method channel gives to handlers failing on the main thread
+            dispatchedResult.error("error", e.message, null)
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * tracks the reply of a dispatched call, posting it to the main thread when
+   * [postsToMainThread] since the messenger must reply there
+   */
+  private class DispatchedResult(private val result: MethodChannel.Result,
+                                 private val postsToMainThread: Boolean) : MethodChannel.Result {
+
+    /**
+     * whether the handler replied, set on its thread before the reply is posted
+     */
+    @Volatile
+    var hasReplied = false
+      private set
+
+    override fun success(value: Any?) = reply { result.success(value) }
+
+    override fun error(errorCode: String?, errorMessage: String?, errorDetails: Any?) =
+        reply { result.error(errorCode, errorMessage, errorDetails) }
+
+    override fun notImplemented() = reply { result.notImplemented() }
+
+    private fun reply(action: () -> Unit) {
+      hasReplied = true
+      if (!postsToMainThread || Looper.myLooper() == Looper.getMainLooper()) {
+        action()
+      } else {
+        BifrostExecutors.MAIN.execute { action() }
+      }
+    }
   }
 }
@@ -1,41 +1,283 @@
 package br.com.dextra.bifrost
 
-import io.flutter.plugin.common.MethodChannel
-import io.flutter.plugin.common.MethodChannel.MethodCallHandler
+import android.util.SparseArray
+import android.util.SparseBooleanArray
+import android.view.Choreographer
+import br.com.dextra.bifrost.BifrostCoordinatorProtocol.BACK_PRESSED
+import br.com.dextra.bifrost.BifrostCoordinatorProtocol.CREATE_PAGE
+import br.com.dextra.bifrost.BifrostCoordinatorProtocol.DEALLOC_PAGE
+import br.com.dextra.bifrost.BifrostCoordinatorProtocol.ENABLE_METRICS
+import br.com.dextra.bifrost.BifrostCoordinatorProtocol.GET_ARGUMENTS
+import br.com.dextra.bifrost.BifrostCoordinatorProtocol.GET_NAVIGATION_METRICS
+import br.com.dextra.bifrost.BifrostCoordinatorProtocol.PAGE_DISPOSED
+import br.com.dextra.bifrost.BifrostCoordinatorProtocol.POP_VIEW_CONTROLLER
+import br.com.dextra.bifrost.BifrostCoordinatorProtocol.PREWARM_PAGE
+import br.com.dextra.bifrost.BifrostCoordinatorProtocol.SET_CAN_POP
+import br.com.dextra.bifrost.BifrostCoordinatorProtocol.SHOW_PAGE
+import br.com.dextra.bifrost.BifrostCoordinatorProtocol.encode
+import io.flutter.plugin.common.BasicMessageChannel
+import io.flutter.plugin.common.BinaryCodec
+import io.flutter.plugin.common.BinaryMessenger
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.Arrays
 
 internal object BifrostCoordinatorChannel {
 
-  private val channel = MethodChannel(Bifrost.engine.dartExecutor, "bifrost/coordinator")
+  // larger arguments are requested by flutter when it creates the page
+  private const val INLINE_ARGUMENTS_LIMIT = 1024
 
-  init {
-    channel.resizeChannelBuffer(2)
+  private val endpoints = hashMapOf<BinaryMessenger, Endpoint>()
+
+  // pages whose route and arguments were sent, later events carry the page id only
+  private val createdPages = hashSetOf<Int>()
+
+  // pushed by flutter whenever the navigator of a page changes, so back presses are answered locally
+  private val poppablePages = SparseBooleanArray()
+  private val canPopListeners = SparseArray<(Boolean) -> Unit>()
+
+  private val codec = BifrostStandardArgumentCodec()
+
+  // in the multi-engine mode a page has no channel until its engine is spawned
+  private fun endpointFor(pageId: Int): Endpoint? {
+    val messenger = Bifrost.engineOfPage(pageId)?.dartExecutor ?: return null
+    return endpoints.getOrPut(messenger) {
+      val channel = BasicMessageChannel(BifrostChannelMetrics.wrap(messenger), "bifrost/coordinator",
+          BinaryCodec.INSTANCE)
+      channel.resizeChannelBuffer(2)
+      channel.setMessageHandler { message, reply -> handle(message, reply) }
+      if (BifrostChannelMetrics.isEnabled) {
+        channel.send(encode(ENABLE_METRICS, 0))
+      }
+      Endpoint(channel)
+    }
+  }
+
+  private fun handle(message: ByteBuffer?, reply: BasicMessageChannel.Reply<ByteBuffer>) {
+    // the spilled arguments are read off the platform thread and replied once loaded
+    if (message != null &&
+        message.limit() >= BifrostCoordinatorProtocol.minimumSize(GET_ARGUMENTS) &&
+        message.get(0) == GET_ARGUMENTS) {
+      BifrostArgumentStore.get(message.order(ByteOrder.LITTLE_ENDIAN).getLong(8)) {
+        reply.reply(BifrostCoordinatorProtocol.encodeArguments(it))
+      }
+      return
+    }
+    reply.reply(handle(message))
+  }
+
+  private fun handle(message: ByteBuffer?): ByteBuffer? {
+    if (message == null || message.limit() < BifrostCoordinatorProtocol.HEADER_SIZE) {
+      return null
+    }
+    val opcode = message.get(0)
+    // a truncated message is dropped instead of throwing on the platform thread
+    if (message.limit() < BifrostCoordinatorProtocol.minimumSize(opcode)) {
+      BifrostLogger.w("Bifrost") {
+        "Dropped a malformed ${BifrostCoordinatorProtocol.nameOf(opcode)} message of " +
+            "${message.limit()} bytes"
+      }
+      return null
+    }
+    message.order(ByteOrder.LITTLE_ENDIAN)
+    return when (opcode) {
+      PAGE_DISPOSED -> {
+        BifrostPageMetrics.onPageDisposed()
+        BifrostPageRegistry.onDisposed(message.getInt(1))
+        null
+      }
+      POP_VIEW_CONTROLLER -> {
+        // flutter has nothing left to pop, even if its last can pop update is still in flight
+        BifrostLogger.event(BifrostLogger.EVENT_POP, message.getInt(1))
+        setCanPop(message.getInt(1), false)
+        BifrostCoordinatorProtocol.encodeFlag(BifrostPageRegistry.pop(message.getInt(1)))
+      }
+      SET_CAN_POP -> {
+        setCanPop(message.getInt(1), message.get(BifrostCoordinatorProtocol.HEADER_SIZE) == 1.toByte())
+        null
+      }
+      else -> null
+    }
   }
 
-  fun onCreatePage(pageData: HashMap<String, Any?>) {
-    channel.invokeMethod("onCreatePage", pageData)
+  private fun setCanPop(pageId: Int, canPop: Boolean) {
+    if (poppablePages.get(pageId) != canPop) {
+      poppablePages.put(pageId, canPop)
+      canPopListeners.get(pageId)?.invoke(canPop)
+    }
   }
 
-  fun onShowPage(pageData: HashMap<String, Any?>) {
-    channel.invokeMethod("onShowPage", pageData)
+  private fun encodePage(opcode: Byte, pageId: Int, route: String, argumentsHandle: Long): ByteBuffer {
+    val arguments = if (argumentsHandle != 0L) BifrostArgumentStore.peek(argumentsHandle) else null
+    val inlineArguments = arguments?.takeIf { it.size <= INLINE_ARGUMENTS_LIMIT }
+    return encode(opcode, pageId, route, argumentsHandle, inlineArguments)
   }
 
-  fun onDeallocPage(pageData: HashMap<String, Any?>) {
-    channel.invokeMethod("onDeallocPage", pageData)
+  fun onCreatePage(pageId: Int, route: String, argumentsHandle: Long) = Bifrost.whenEngineReady {
+    BifrostTrace.trace({ "Bifrost.createPage $pageId $route" }) {
+      BifrostLogger.event(BifrostLogger.EVENT_CREATE, pageId)
+      val endpoint = endpointFor(pageId) ?: return@whenEngineReady
+      createdPages.add(pageId)
+      endpoint.enqueue(CREATE_PAGE, pageId, encodePage(CREATE_PAGE, pageId, route, argumentsHandle))
+    }
   }
 
-  fun onBackPressed(pageData: HashMap<String, Any?>) {
-    channel.invokeMethod("onBackPressed", pageData)
+  /**
+   * create the page and mount it ahead of its host, see [Bifrost.prewarm]
+   */
+  fun onPrewarmPage(pageId: Int, route: String, argumentsHandle: Long) = Bifrost.whenEngineReady {
+    BifrostTrace.trace({ "Bifrost.prewarmPage $pageId $route" }) {
+      BifrostLogger.event(BifrostLogger.EVENT_CREATE, pageId)
+      val endpoint = endpointFor(pageId) ?: return@whenEngineReady
+      createdPages.add(pageId)
+      endpoint.enqueue(PREWARM_PAGE, pageId,
+          encodePage(PREWARM_PAGE, pageId, route, argumentsHandle))
+    }
   }
 
-  fun canPop(pageData: HashMap<String, Any?>, callback: (Boolean) -> Unit) {
-    channel.invokeMethod("canPop", pageData, object : MethodChannel.Result {
-      override fun success(result: Any?) = callback((result as? Boolean) ?: false)
-      override fun error(code: String?, message: String?, details: Any?) = callback(false)
-      override fun notImplemented() = callback(false)
-    })
+  /**
+   * create the page when the host is restored in a new process, which skipped its builder
+   */
+  fun onCreatePageIfNeeded(pageId: Int, route: String, argumentsHandle: Long) = Bifrost.whenEngineReady {
+    if (!createdPages.contains(pageId)) {
+      onCreatePage(pageId, route, argumentsHandle)
+    }
   }
 
-  fun setMethodCallHandler(handler: MethodCallHandler?) {
-    channel.setMethodCallHandler(handler)
+  fun onShowPage(pageId: Int) = Bifrost.whenEngineReady {
+    BifrostTrace.trace({ BifrostTrace.pageName("Bifrost.showPage", pageId) }) {
+      BifrostLogger.event(BifrostLogger.EVENT_SHOW, pageId)
+      BifrostPageRegistry.onShown(pageId)
+      val endpoint = endpointFor(pageId)
+      // a page shown twice in the same frame, e.g. attached to window and resumed
+      if (endpoint != null && !endpoint.isLastEvent(SHOW_PAGE, pageId)) {
+        endpoint.enqueue(SHOW_PAGE, pageId, null)
+      }
+    }
+  }
+
+  fun onDeallocPage(pageId: Int) = Bifrost.whenEngineReady {
+    BifrostTrace.trace({ BifrostTrace.pageName("Bifrost.deallocPage", pageId) }) {
+      BifrostLogger.event(BifrostLogger.EVENT_DEALLOC, pageId)
+      createdPages.remove(pageId)
+      poppablePages.delete(pageId)
+      endpointFor(pageId)?.enqueue(DEALLOC_PAGE, pageId, null)
+    }
+  }
+
+  fun onBackPressed(pageId: Int) = Bifrost.whenEngineReady {
+    BifrostTrace.trace({ BifrostTrace.pageName("Bifrost.backPressed", pageId) }) {
+      BifrostLogger.event(BifrostLogger.EVENT_BACK_PRESSED, pageId)
+      endpointFor(pageId)?.enqueue(BACK_PRESSED, pageId, null)
+    }
+  }
+
+  /**
+   * whether the navigator of the page has routes to pop, as last reported by flutter
+   */
+  fun canPop(pageId: Int): Boolean {
+    return poppablePages.get(pageId)
+  }
+
+  /**
+   * listen to the changes of [canPop], or stop listening with a null [listener]
+   */
+  fun setCanPopListener(pageId: Int, listener: ((Boolean) -> Unit)?) {
+    if (listener != null) {
+      canPopListeners.put(pageId, listener)
+    } else {
+      canPopListeners.remove(pageId)
+    }
+  }
+
+  /**
+   * query the navigation metrics of every running engine, the [callback] receives them merged
+   * once all engines replied
+   */
+  fun navigationMetrics(callback: (BifrostNavigationMetrics) -> Unit) {
+    val channels = endpoints.values.map { it.channel }
+    if (channels.isEmpty()) {
+      callback(BifrostNavigationMetrics.merge(emptyList()))
+      return
+    }
+    val replies = ArrayList<Map<*, *>>(channels.size)
+    var pending = channels.size
+    for (channel in channels) {
+      channel.send(encode(GET_NAVIGATION_METRICS, 0)) { reply ->
+        if (reply != null) {
+          val bytes = ByteArray(reply.remaining())
+          reply.get(bytes)
+          (codec.decode(bytes) as? Map<*, *>)?.let { replies.add(it) }
+        }
+        if (--pending == 0) {
+          callback(BifrostNavigationMetrics.merge(replies))
+        }
+      }
+    }
+  }
+
+  fun detach(messenger: BinaryMessenger) {
+    endpoints.remove(messenger)?.dispose()
+  }
+
+  /**
+   * Coalesces the events queued within one frame into a single batched message.
+   */
+  private class Endpoint(val channel: BasicMessageChannel<ByteBuffer>) : Choreographer.FrameCallback {
+
+    private var size = 0
+    private var opcodes = ByteArray(8)
+    private var pageIds = IntArray(8)
+    private var payloads = arrayOfNulls<ByteBuffer>(8)
+    private var isScheduled = false
+
+    fun isLastEvent(opcode: Byte, pageId: Int): Boolean {
+      return size > 0 && opcodes[size - 1] == opcode && pageIds[size - 1] == pageId
+    }
+
+    /**
+     * queue an event, [payload] holds the encoded page event or null for header only events
+     */
+    fun enqueue(opcode: Byte, pageId: Int, payload: ByteBuffer?) {
+      if (size == opcodes.size) {
+        opcodes = opcodes.copyOf(size * 2)
+        pageIds = pageIds.copyOf(size * 2)
+        payloads = payloads.copyOf(size * 2)
+      }
+      opcodes[size] = opcode
+      pageIds[size] = pageId
+      payloads[size] = payload
+      size++
+
+      if (!isScheduled) {
+        isScheduled = true
+        Choreographer.getInstance().postFrameCallback(this)
+      }
+    }
+
+    override fun doFrame(frameTimeNanos: Long) {
+      isScheduled = false
+      BifrostTrace.trace({ "Bifrost.flush $size events" }) { flush() }
+    }
+
+    fun flush() {
+      when (size) {
+        0 -> return
+        1 -> channel.send(payloads[0] ?: encode(opcodes[0], pageIds[0]))
+        else -> channel.send(BifrostCoordinatorProtocol.encodeBatch(size, opcodes, pageIds, payloads))
+      }
+      Arrays.fill(payloads, 0, size, null)
+      size = 0
+    }
+
+    fun dispose() {
+      if (isScheduled) {
+        Choreographer.getInstance().removeFrameCallback(this)
+        isScheduled = false
+      }
+      Arrays.fill(payloads, 0, size, null)
+      size = 0
+      channel.setMessageHandler(null)
+    }
   }
 }
@@ -0,0 +1,159 @@
+package br.com.dextra.bifrost
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+/**
+ * Binary layout of the messages exchanged on the coordinator channel.
+ *
+ * Every message starts with the opcode (uint8) followed by the page id (int32), little endian.
+ * Only [CREATE_PAGE] and [PREWARM_PAGE] carry the route as an int32 length plus its UTF-8 bytes and, starting at the
+ * next 8-byte aligned offset, the int64 handle of the page arguments in the
+ * [BifrostArgumentStore]. Small arguments follow the handle, as encoded by the
+ * [BifrostArgumentCodec]; larger ones are requested by the handle with [GET_ARGUMENTS], which
+ * carries it as an int64 at offset 8.
+ *
+ * [PREWARM_PAGE] creates the page like [CREATE_PAGE] and also mounts it off-stage, so its routes are
+ * built and laid out before the page is shown.
+ *
+ * [SET_CAN_POP] is sent by flutter whenever a page starts or stops being able to pop, with the
+ * flag as an uint8 after the header.
+ *
+ * [POP_VIEW_CONTROLLER] is sent by flutter when the navigator of a page has no route left to pop,
+ * so its host is closed. It is replied with an uint8, 0 when no live host was found to close.
+ *
+ * [PAGE_DISPOSED] is sent by flutter once the container of a deallocated page was unmounted.
+ *
+ * [ENABLE_METRICS] turns on the flutter side metrics, and [GET_NAVIGATION_METRICS] is replied with
+ * the navigation metrics of the engine encoded in the StandardMessageCodec format.
+ *
+ * A [BATCH] message carries the number of events in place of the page id. Each event follows at
+ * an 8-byte aligned offset as an int32 length, 4 bytes of padding and the event message itself.
+ */
+internal object BifrostCoordinatorProtocol {
+
+  const val CREATE_PAGE: Byte = 1
+  const val SHOW_PAGE: Byte = 2
+  const val DEALLOC_PAGE: Byte = 3
+  const val BACK_PRESSED: Byte = 4
+  const val SET_CAN_POP: Byte = 5
+  const val POP_VIEW_CONTROLLER: Byte = 6
+  const val BATCH: Byte = 7
+  const val GET_ARGUMENTS: Byte = 8
+  const val PAGE_DISPOSED: Byte = 9
+  const val ENABLE_METRICS: Byte = 10
+  const val GET_NAVIGATION_METRICS: Byte = 11
+  const val PREWARM_PAGE: Byte = 12
+
+  const val HEADER_SIZE = 5
+  private const val ENTRY_HEADER_SIZE = 8
+
+  // the messenger copies the message when it is sent, so header only messages share a buffer
+  private val headerBuffer = ByteBuffer.allocateDirect(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+
+  fun nameOf(opcode: Byte): String {
+    return when (opcode) {
+      CREATE_PAGE -> "createPage"
+      SHOW_PAGE -> "showPage"
+      DEALLOC_PAGE -> "deallocPage"
+      BACK_PRESSED -> "backPressed"
+      SET_CAN_POP -> "setCanPop"
+      POP_VIEW_CONTROLLER -> "popViewController"
+      BATCH -> "batch"
+      GET_ARGUMENTS -> "getArguments"
+      PAGE_DISPOSED -> "pageDisposed"
+      ENABLE_METRICS -> "enableMetrics"
+      GET_NAVIGATION_METRICS -> "getNavigationMetrics"
+      PREWARM_PAGE -> "prewarmPage"
+      else -> "unknown"
+    }
+  }
+
+  /**
+   * size of the shortest valid message with the [opcode], shorter ones are malformed
+   */
+  fun minimumSize(opcode: Byte): Int {
+    return when (opcode) {
+      GET_ARGUMENTS -> 16
+      SET_CAN_POP -> HEADER_SIZE + 1
+      else -> HEADER_SIZE
+    }
+  }
+
+  fun encode(opcode: Byte, pageId: Int): ByteBuffer {
+    headerBuffer.clear()
+    headerBuffer.put(opcode).putInt(pageId)
+    return headerBuffer
+  }
+
+  fun encode(opcode: Byte,
+             pageId: Int,
+             route: String,
+             argumentsHandle: Long,
+             arguments: ByteArray?): ByteBuffer {
+    val routeBytes = route.toByteArray(Charsets.UTF_8)
+    val routeEnd = HEADER_SIZE + 4 + routeBytes.size
+    val handleOffset = align(routeEnd)
+    val size = when {
+      argumentsHandle == 0L -> routeEnd
+      // typed lists are decoded in place, so the arguments must start 8-byte aligned
+      arguments != null -> handleOffset + 8 + arguments.size
+      else -> handleOffset + 8
+    }
+
+    val buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN)
+    buffer.put(opcode).putInt(pageId).putInt(routeBytes.size).put(routeBytes)
+    if (argumentsHandle != 0L) {
+      buffer.position(handleOffset)
+      buffer.putLong(argumentsHandle)
+      if (arguments != null) {
+        buffer.put(arguments)
+      }
+    }
+    return buffer
+  }
+
+  fun encodeFlag(flag: Boolean): ByteBuffer {
+    return ByteBuffer.allocateDirect(1).put(if (flag) 1.toByte() else 0.toByte())
+  }
+
+  fun encodeArguments(arguments: ByteArray?): ByteBuffer? {
+    if (arguments == null) return null
+    return ByteBuffer.allocateDirect(arguments.size).put(arguments)
+  }
+
+  /**
+   * encode the first [count] events in a single [BATCH] message, [payloads] holds the encoded
+   * page events or null for the header only ones.
+   */
+  fun encodeBatch(count: Int,
+                  opcodes: ByteArray,
+                  pageIds: IntArray,
+                  payloads: Array<ByteBuffer?>): ByteBuffer {
+    var size = HEADER_SIZE
+    for (i in 0 until count) {
+      size = align(size) + ENTRY_HEADER_SIZE + (payloads[i]?.position() ?: HEADER_SIZE)
+    }
+
+    val buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN)
+    buffer.put(BATCH).putInt(count)
+    for (i in 0 until count) {
+      val payload = payloads[i]
+      val offset = align(buffer.position())
+      buffer.position(offset)
+      buffer.putInt(payload?.position() ?: HEADER_SIZE)
+      buffer.position(offset + ENTRY_HEADER_SIZE)
+      if (payload != null) {
+        payload.flip()
+        buffer.put(payload)
+      } else {
+        buffer.put(opcodes[i]).putInt(pageIds[i])
+      }
+    }
+    return buffer
+  }
+
+  private fun align(offset: Int): Int {
+    return (offset + 7) and 7.inv()
+  }
+}
@@ -0,0 +1,66 @@
+package br.com.dextra.bifrost
+
+import android.content.Context
+import io.flutter.embedding.engine.FlutterEngine
+import io.flutter.embedding.engine.FlutterEngineGroup
+
+/**
+ * Keeps one lightweight engine per page, spawned from a shared [FlutterEngineGroup] so that
+ * all of them share the dart VM snapshot and the GPU context. No engine is kept besides the
+ * ones of the pages.
+ *
+ * When [maxEngines] is reached, the least recently used engine is reclaimed: its host is
+ * detached (leaving a snapshot on screen) and the engine destroyed. The host obtains a new
+ * engine when it is shown again.
+ */
+internal class BifrostEnginePool(private val context: Context,
+                                 private val maxEngines: Int) {
+
+  /**
+   * created with the first engine, the group runs the first engine itself and spawns the others
+   * from it
+   */
+  val group: FlutterEngineGroup by lazy { FlutterEngineGroup(context) }
+
+  private class Entry(val engine: FlutterEngine, var onReclaim: (() -> Unit)?)
+
+  // access ordered, the eldest entry belongs to the least recently used page
+  private val entries = LinkedHashMap<Int, Entry>(maxEngines, 0.75f, true)
+
+  fun get(pageId: Int): FlutterEngine? {
+    return entries[pageId]?.engine
+  }
+
+  fun obtain(context: Context,
+             pageId: Int,
+             onReclaim: () -> Unit,
+             onCreated: (FlutterEngine) -> Unit): FlutterEngine {
+    val entry = entries[pageId]
+    if (entry != null) {
+      entry.onReclaim = onReclaim
+      return entry.engine
+    }
+
+    while (entries.size >= maxEngines && entries.isNotEmpty()) {
+      reclaimEldest()
+    }
+
+    val engine = group.createAndRunDefaultEngine(context)
+    entries[pageId] = Entry(engine, onReclaim)
+    onCreated(engine)
+    return engine
+  }
+
+  fun release(pageId: Int) {
+    entries.remove(pageId)?.engine?.destroy()
+  }
+
+  private fun reclaimEldest() {
+    val iterator = entries.values.iterator()
+    val eldest = iterator.next()
+    iterator.remove()
+    eldest.onReclaim?.invoke()
+    eldest.onReclaim = null
+    eldest.engine.destroy()
+  }
+}
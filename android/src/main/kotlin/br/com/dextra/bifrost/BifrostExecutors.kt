@@ -0,0 +1,46 @@
+package br.com.dextra.bifrost
+
+import android.os.Handler
+import android.os.Looper
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Executors to choose the thread where bifrost invokes the app callbacks.
+ */
+object BifrostExecutors {
+
+  /**
+   * posts to the main thread
+   */
+  @JvmField
+  val MAIN: Executor = object : Executor {
+    private val handler = Handler(Looper.getMainLooper())
+
+    override fun execute(command: Runnable) {
+      handler.post(command)
+    }
+  }
+
+  /**
+   * runs on the thread that received the message, the platform thread for flutter messages
+   */
+  @JvmField
+  val INLINE: Executor = Executor { it.run() }
+
+  /**
+   * shared pool of daemon threads for blocking work
+   */
+  @JvmField
+  val BACKGROUND: Executor = Executors.newCachedThreadPool(object : ThreadFactory {
+    private val count = AtomicInteger()
+
+    override fun newThread(runnable: Runnable): Thread {
+      return Thread(runnable, "bifrost-background-${count.incrementAndGet()}").apply {
+        isDaemon = true
+      }
+    }
+  })
+}
@@ -3,10 +3,10 @@ package br.com.dextra.bifrost
 import android.content.Context
 import android.content.Intent
 import android.graphics.Color
+import android.os.Bundle
 import io.flutter.embedding.android.CustomFlutterActivity
 import io.flutter.embedding.android.SplashScreen
 import io.flutter.embedding.engine.FlutterEngine
-import java.io.Serializable
 
 open class BifrostFlutterActivity : CustomFlutterActivity() {
 
@@ -22,6 +22,19 @@ open class BifrostFlutterActivity : CustomFlutterActivity() {
     ) = SingleEngineIntentBuilder(route, arguments, backgroundColor, activityClass)
         .build(context)
 
+    /**
+     * intent of the page prewarmed with [Bifrost.prewarm]
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun createIntent(
+        context: Context,
+        page: BifrostPageHandle,
+        backgroundColor: Int? = null,
+        activityClass: Class<out BifrostFlutterActivity> = BifrostFlutterActivity::class.java
+    ) = SingleEngineIntentBuilder(page.route, null, backgroundColor, activityClass, page)
+        .build(context)
+
     // only available for kotlin
     inline fun <reified T : BifrostFlutterActivity> createIntentByCast(
         context: Context,
@@ -35,17 +48,16 @@ open class BifrostFlutterActivity : CustomFlutterActivity() {
   data class SingleEngineIntentBuilder(val route: String,
                                        val arguments: Any?,
                                        val backgroundColor: Int?,
-                                       val activityClass: Class<out BifrostFlutterActivity>) {
+                                       val activityClass: Class<out BifrostFlutterActivity>,
+                                       val page: BifrostPageHandle? = null) {
 
     fun build(context: Context): Intent {
-      val id = Bifrost.generatePageId()
-      val data = hashMapOf("id" to id, "route" to route, "arguments" to arguments)
-      BifrostCoordinatorChannel.onCreatePage(data)
+      val page = page?.consume() ?: BifrostPageHandle.create(route, arguments, prewarm = false)
 
       return Intent(context, activityClass).apply {
-        putExtra(BifrostConstants.ID, id)
-        putExtra(BifrostConstants.ROUTE, route)
-        putExtra(BifrostConstants.ARGUMENTS, serializeObject(arguments))
+        putExtra(BifrostConstants.ID, page.id)
+        putExtra(BifrostConstants.ROUTE, page.route)
+        putExtra(BifrostConstants.ARGUMENTS, page.argumentsHandle)
         putExtra(BifrostConstants.BACKGROUND_COLOR, backgroundColor)
       }
     }
@@ -57,22 +69,29 @@ open class BifrostFlutterActivity : CustomFlutterActivity() {
   private val pageRoute: String
     get() = intent.getStringExtra(BifrostConstants.ROUTE) ?: "/"
 
-  private val pageArguments: Serializable?
-    get() = intent.getSerializableExtra(BifrostConstants.ARGUMENTS)
-
-  private val pageData: HashMap<String, Any?>
-    get() = hashMapOf("id" to pageId, "route" to pageRoute, "arguments" to pageArguments)
+  private val pageArgumentsHandle: Long
+    get() = intent.getLongExtra(BifrostConstants.ARGUMENTS, 0L)
 
   private val backgroundColor: Int
     get() = intent.getIntExtra(BifrostConstants.BACKGROUND_COLOR, Color.WHITE)
 
+  override fun onCreate(savedInstanceState: Bundle?) {
+    super.onCreate(savedInstanceState)
+    BifrostPageRegistry.register(pageId, pageRoute, this)
+    BifrostCoordinatorChannel.onCreatePageIfNeeded(pageId, pageRoute, pageArgumentsHandle)
+  }
+
   override fun onAttachedToWindow() {
     super.onAttachedToWindow()
-    BifrostCoordinatorChannel.onShowPage(pageData)
+    BifrostCoordinatorChannel.onShowPage(pageId)
   }
 
   override fun provideFlutterEngine(context: Context): FlutterEngine? {
-    return Bifrost.engine
+    return Bifrost.engineForPage(
+        pageId,
+        onCreated = { BifrostCoordinatorChannel.onCreatePage(pageId, pageRoute, pageArgumentsHandle) },
+        onReclaim = { detachFromFlutterEngine() }
+    )
   }
 
   override fun configureFlutterEngine(flutterEngine: FlutterEngine) {
@@ -84,26 +103,45 @@ open class BifrostFlutterActivity : CustomFlutterActivity() {
 
   override fun onResume() {
     super.onResume()
-    BifrostCoordinatorChannel.onShowPage(pageData)
+    BifrostCoordinatorChannel.onShowPage(pageId)
+  }
+
+  override fun onSaveInstanceState(outState: Bundle) {
+    super.onSaveInstanceState(outState)
+    BifrostArgumentStore.persist(pageArgumentsHandle)
   }
 
   override fun onDestroy() {
-    BifrostCoordinatorChannel.onDeallocPage(pageData)
+    BifrostPageRegistry.onDestroyed(pageId)
+    BifrostCoordinatorChannel.onDeallocPage(pageId)
     super.onDestroy()
+    if (!isChangingConfigurations) {
+      Bifrost.releasePage(pageId)
+    }
+    // an activity destroyed in the background is restored later with the same handle
+    if (isFinishing) {
+      BifrostArgumentStore.remove(pageArgumentsHandle)
+    }
   }
 
   override fun onBackPressed() {
     if (stillAttachedForEvent("onBackPressed")) {
-      BifrostCoordinatorChannel.canPop(pageData) { canPop ->
-        if (canPop) {
-          BifrostCoordinatorChannel.onBackPressed(pageData)
-        } else {
-          finish()
-        }
+      if (BifrostCoordinatorChannel.canPop(pageId)) {
+        BifrostCoordinatorChannel.onBackPressed(pageId)
+      } else {
+        finish()
       }
     }
   }
 
+  override fun getTraceName(): String {
+    return "$pageId $pageRoute"
+  }
+
+  override fun getBifrostPageId(): Int {
+    return pageId
+  }
+
   override fun provideSplashScreen(): SplashScreen? {
     val splashScreen = super.provideSplashScreen()
     if (splashScreen != null) return splashScreen
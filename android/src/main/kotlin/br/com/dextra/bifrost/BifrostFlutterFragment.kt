@@ -3,12 +3,12 @@ package br.com.dextra.bifrost
 import android.content.Context
 import android.graphics.Color
 import android.os.Bundle
+import androidx.activity.OnBackPressedCallback
 import io.flutter.embedding.android.RenderMode
 import io.flutter.embedding.android.SplashScreen
 import io.flutter.embedding.android.TransparencyMode
 import io.flutter.embedding.android.CustomFlutterFragment
 import io.flutter.embedding.engine.FlutterEngine
-import java.io.*
 
 open class BifrostFlutterFragment : CustomFlutterFragment() {
 
@@ -23,6 +23,18 @@ open class BifrostFlutterFragment : CustomFlutterFragment() {
     ) = SingleEngineFragmentBuilder(route, arguments, backgroundColor, fragmentClass)
         .build<T>()
 
+    /**
+     * fragment of the page prewarmed with [Bifrost.prewarm]
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun <T : BifrostFlutterFragment> newInstance(
+        page: BifrostPageHandle,
+        backgroundColor: Int? = null,
+        fragmentClass: Class<out BifrostFlutterFragment> = BifrostFlutterFragment::class.java
+    ) = SingleEngineFragmentBuilder(page.route, null, backgroundColor, fragmentClass, page)
+        .build<T>()
+
     // only available for kotlin
     inline fun <reified T : BifrostFlutterFragment> newInstanceByCast(
         route: String,
@@ -35,7 +47,8 @@ open class BifrostFlutterFragment : CustomFlutterFragment() {
   data class SingleEngineFragmentBuilder(val route: String,
                                          val arguments: Any?,
                                          val backgroundColor: Int?,
-                                         val fragmentClass: Class<out BifrostFlutterFragment>) {
+                                         val fragmentClass: Class<out BifrostFlutterFragment>,
+                                         val page: BifrostPageHandle? = null) {
 
     fun <T : BifrostFlutterFragment> build(): T {
       return try {
@@ -46,14 +59,12 @@ open class BifrostFlutterFragment : CustomFlutterFragment() {
                     + fragmentClass.canonicalName
                     + ") does not match the expected return type.")
 
-        val id = Bifrost.generatePageId()
-        val data = hashMapOf("id" to id, "route" to route, "arguments" to arguments)
-        BifrostCoordinatorChannel.onCreatePage(data)
+        val page = page?.consume() ?: BifrostPageHandle.create(route, arguments, prewarm = false)
 
         val args = Bundle().apply {
-          putInt(BifrostConstants.ID, id)
-          putString(BifrostConstants.ROUTE, route)
-          putSerializable(BifrostConstants.ARGUMENTS, serializeObject(arguments))
+          putInt(BifrostConstants.ID, page.id)
+          putString(BifrostConstants.ROUTE, page.route)
+          putLong(BifrostConstants.ARGUMENTS, page.argumentsHandle)
           putInt(BifrostConstants.BACKGROUND_COLOR, backgroundColor ?: Color.WHITE)
         }
         frag.arguments = args
@@ -72,11 +83,8 @@ open class BifrostFlutterFragment : CustomFlutterFragment() {
   private val pageRoute: String
     get() = arguments?.getString(BifrostConstants.ROUTE) ?: "/"
 
-  private val pageArguments: Serializable?
-    get() = arguments?.getSerializable(BifrostConstants.ARGUMENTS)
-
-  private val pageData: HashMap<String, Any?>
-    get() = hashMapOf("id" to pageId, "route" to pageRoute, "arguments" to pageArguments)
+  private val pageArgumentsHandle: Long
+    get() = arguments?.getLong(BifrostConstants.ARGUMENTS) ?: 0L
 
   private val backgroundColor: Int
     get() = arguments?.getInt(BifrostConstants.BACKGROUND_COLOR) ?: Color.WHITE
@@ -90,7 +98,19 @@ open class BifrostFlutterFragment : CustomFlutterFragment() {
   }
 
   override fun provideFlutterEngine(context: Context): FlutterEngine {
-    return Bifrost.engine
+    return Bifrost.engineForPage(
+        pageId,
+        onCreated = { BifrostCoordinatorChannel.onCreatePage(pageId, pageRoute, pageArgumentsHandle) },
+        onReclaim = { detachFromFlutterEngine() }
+    )
+  }
+
+  override fun getTraceName(): String {
+    return "$pageId $pageRoute"
+  }
+
+  override fun getBifrostPageId(): Int {
+    return pageId
   }
 
   override fun provideSplashScreen(): SplashScreen {
@@ -99,37 +119,75 @@ open class BifrostFlutterFragment : CustomFlutterFragment() {
     return BifrostSplashScreen(backgroundColor)
   }
 
+  // only intercepts the back presses while the flutter navigator has routes to pop
+  private val backPressedCallback = object : OnBackPressedCallback(false) {
+    override fun handleOnBackPressed() {
+      BifrostCoordinatorChannel.onBackPressed(pageId)
+    }
+  }
+
+  override fun onAttach(context: Context) {
+    super.onAttach(context)
+    BifrostPageRegistry.register(pageId, pageRoute, this)
+    BifrostCoordinatorChannel.onCreatePageIfNeeded(pageId, pageRoute, pageArgumentsHandle)
+    BifrostCoordinatorChannel.setCanPopListener(pageId) { updateBackPressedCallback() }
+    requireActivity().onBackPressedDispatcher.addCallback(this, backPressedCallback)
+    updateBackPressedCallback()
+  }
+
+  private fun updateBackPressedCallback() {
+    backPressedCallback.isEnabled = !isHidden && BifrostCoordinatorChannel.canPop(pageId)
+  }
+
   override fun onStart() {
     super.onStart()
     if (!isHidden) {
-      BifrostCoordinatorChannel.onShowPage(pageData)
+      BifrostCoordinatorChannel.onShowPage(pageId)
     }
   }
 
   override fun onHiddenChanged(hidden: Boolean) {
     super.onHiddenChanged(hidden)
+    updateBackPressedCallback()
     if (!isHidden) {
-      BifrostCoordinatorChannel.onShowPage(pageData)
+      BifrostCoordinatorChannel.onShowPage(pageId)
     }
   }
 
+  override fun onSaveInstanceState(outState: Bundle) {
+    super.onSaveInstanceState(outState)
+    BifrostArgumentStore.persist(pageArgumentsHandle)
+  }
+
   override fun onDetach() {
     super.onDetach()
-    BifrostCoordinatorChannel.onDeallocPage(pageData)
+    BifrostCoordinatorChannel.setCanPopListener(pageId, null)
+    backPressedCallback.remove()
+    BifrostPageRegistry.onDestroyed(pageId)
+    BifrostCoordinatorChannel.onDeallocPage(pageId)
+    if (activity?.isChangingConfigurations != true) {
+      Bifrost.releasePage(pageId)
+    }
+    // a fragment destroyed along with a background activity is restored with the same handle
+    if (isRemoving || activity?.isFinishing == true) {
+      BifrostArgumentStore.remove(pageArgumentsHandle)
+    }
   }
 
   override fun shouldAttachEngineToActivity(): Boolean {
     return true
   }
 
+  /**
+   * back presses are handled by the callback registered on the activity dispatcher, this is only
+   * kept for hosts that still forward them by hand and goes through the same callback
+   */
   override fun onBackPressed() {
     if (stillAttachedForEvent("onBackPressed")) {
-      BifrostCoordinatorChannel.canPop(pageData) { canPop ->
-        if (canPop) {
-          BifrostCoordinatorChannel.onBackPressed(pageData)
-        } else {
-          activity?.onBackPressedDispatcher?.onBackPressed()
-        }
+      if (backPressedCallback.isEnabled) {
+        backPressedCallback.handleOnBackPressed()
+      } else {
+        activity?.onBackPressedDispatcher?.onBackPressed()
       }
     }
   }
@@ -0,0 +1,77 @@
+package br.com.dextra.bifrost
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Log-linear latency histogram in the spirit of HdrHistogram: values below 32 microseconds are
+ * exact and larger ones keep 16 sub-buckets per power of two, so percentiles are within 7%.
+ * Recording never allocates and may happen on any thread.
+ */
+internal class BifrostLatencyHistogram {
+
+  companion object {
+    private const val SUB_BUCKET_BITS = 5
+    private const val SUB_BUCKET_COUNT = 1 shl SUB_BUCKET_BITS
+    private const val SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2
+
+    // values up to 2^32 microseconds, about 71 minutes, larger ones fall in the last bucket
+    private const val MAX_VALUE_BITS = 32
+    private const val BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKET_HALF
+
+    private fun indexOf(micros: Long): Int {
+      if (micros < SUB_BUCKET_COUNT) return micros.toInt()
+      val shift = 63 - java.lang.Long.numberOfLeadingZeros(micros) - (SUB_BUCKET_BITS - 1)
+      val index = SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (micros ushr shift).toInt() - SUB_BUCKET_HALF
+      return minOf(index, BUCKET_COUNT - 1)
+    }
+
+    private fun highestValueAt(index: Int): Long {
+      if (index < SUB_BUCKET_COUNT) return index.toLong()
+      val offset = index - SUB_BUCKET_COUNT
+      val shift = offset / SUB_BUCKET_HALF + 1
+      val subBucket = offset % SUB_BUCKET_HALF + SUB_BUCKET_HALF
+      return (subBucket.toLong() shl shift) + (1L shl shift) - 1
+    }
+  }
+
+  private val counts = AtomicLongArray(BUCKET_COUNT)
+  private val totalCount = AtomicLong()
+  private val totalMicros = AtomicLong()
+  private val maxMicros = AtomicLong()
+
+  fun record(micros: Long) {
+    val value = if (micros < 0) 0 else micros
+    counts.incrementAndGet(indexOf(value))
+    totalCount.incrementAndGet()
+    totalMicros.addAndGet(value)
+    var max = maxMicros.get()
+    while (value > max && !maxMicros.compareAndSet(max, value)) {
+      max = maxMicros.get()
+    }
+  }
+
+  fun snapshot(): BifrostLatency {
+    val count = totalCount.get()
+    val snapshot = LongArray(BUCKET_COUNT) { counts.get(it) }
+    return BifrostLatency(
+        count = count,
+        meanMicros = if (count > 0) totalMicros.get() / count else 0,
+        p50Micros = percentile(snapshot, count, 50.0),
+        p90Micros = percentile(snapshot, count, 90.0),
+        p99Micros = percentile(snapshot, count, 99.0),
+        maxMicros = maxMicros.get()
+    )
+  }
+
+  private fun percentile(snapshot: LongArray, count: Long, percentile: Double): Long {
+    if (count == 0L) return 0
+    val target = maxOf(1L, Math.ceil(count * percentile / 100).toLong())
+    var seen = 0L
+    for (index in snapshot.indices) {
+      seen += snapshot[index]
+      if (seen >= target) return minOf(highestValueAt(index), maxMicros.get())
+    }
+    return maxMicros.get()
+  }
+}
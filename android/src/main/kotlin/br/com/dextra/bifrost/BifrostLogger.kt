@@ -0,0 +1,186 @@
+package br.com.dextra.bifrost
+
+import android.os.SystemClock
+import android.util.Log
+
+/**
+ * Logging of the bifrost hosts and the embedding forks. Messages under [level] are dropped
+ * before their strings are built, and the last page lifecycle events are kept in a ring buffer
+ * of primitives that can be dumped on crash, see [dump] and [dumpOnCrash].
+ */
+object BifrostLogger {
+
+  const val VERBOSE = Log.VERBOSE
+  const val DEBUG = Log.DEBUG
+  const val INFO = Log.INFO
+  const val WARN = Log.WARN
+  const val ERROR = Log.ERROR
+
+  const val EVENT_CREATE = 1
+  const val EVENT_SHOW = 2
+  const val EVENT_DEALLOC = 3
+  const val EVENT_BACK_PRESSED = 4
+  const val EVENT_POP = 5
+  const val EVENT_ATTACH = 6
+  const val EVENT_CREATE_VIEW = 7
+  const val EVENT_START = 8
+  const val EVENT_RESUME = 9
+  const val EVENT_PAUSE = 10
+  const val EVENT_STOP = 11
+  const val EVENT_DESTROY_VIEW = 12
+  const val EVENT_DETACH_HOST = 13
+  const val EVENT_DETACH = 14
+  const val EVENT_REATTACH = 15
+
+  /**
+   * minimum priority of the logged messages, warnings and errors only by default
+   */
+  @JvmStatic
+  var level = WARN
+
+  /**
+   * number of lifecycle events kept, the oldest ones are overwritten
+   */
+  @JvmStatic
+  var eventCapacity = 128
+    @Synchronized set(value) {
+      require(value > 0) { "The event capacity must be positive" }
+      field = value
+      events = IntArray(value)
+      pageIds = IntArray(value)
+      timestamps = LongArray(value)
+      count = 0
+    }
+
+  private var events = IntArray(eventCapacity)
+  private var pageIds = IntArray(eventCapacity)
+  private var timestamps = LongArray(eventCapacity)
+  private var count = 0L
+
+  @JvmStatic
+  fun isLoggable(priority: Int): Boolean {
+    return priority >= level
+  }
+
+  @JvmStatic
+  fun v(tag: String, message: String) {
+    if (isLoggable(VERBOSE)) Log.v(tag, message)
+  }
+
+  @JvmStatic
+  fun d(tag: String, message: String) {
+    if (isLoggable(DEBUG)) Log.d(tag, message)
+  }
+
+  @JvmStatic
+  fun i(tag: String, message: String) {
+    if (isLoggable(INFO)) Log.i(tag, message)
+  }
+
+  @JvmStatic
+  fun w(tag: String, message: String) {
+    if (isLoggable(WARN)) Log.w(tag, message)
+  }
+
+  @JvmStatic
+  fun e(tag: String, message: String) {
+    if (isLoggable(ERROR)) Log.e(tag, message)
+  }
+
+  @JvmStatic
+  fun e(tag: String, message: String, error: Throwable) {
+    if (isLoggable(ERROR)) Log.e(tag, message, error)
+  }
+
+  /**
+   * lazy overloads for the kotlin call sites, the [message] is only built when it is logged
+   */
+  internal inline fun v(tag: String, message: () -> String) {
+    if (isLoggable(VERBOSE)) Log.v(tag, message())
+  }
+
+  internal inline fun d(tag: String, message: () -> String) {
+    if (isLoggable(DEBUG)) Log.d(tag, message())
+  }
+
+  internal inline fun i(tag: String, message: () -> String) {
+    if (isLoggable(INFO)) Log.i(tag, message())
+  }
+
+  internal inline fun w(tag: String, message: () -> String) {
+    if (isLoggable(WARN)) Log.w(tag, message())
+  }
+
+  internal inline fun e(tag: String, message: () -> String) {
+    if (isLoggable(ERROR)) Log.e(tag, message())
+  }
+
+  internal inline fun e(tag: String, error: Throwable, message: () -> String) {
+    if (isLoggable(ERROR)) Log.e(tag, message(), error)
+  }
+
+  /**
+   * record a lifecycle [event] of the page, see the `EVENT_` constants
+   */
+  @JvmStatic
+  @Synchronized
+  fun event(event: Int, pageId: Int) {
+    val index = (count % events.size).toInt()
+    events[index] = event
+    pageIds[index] = pageId
+    timestamps[index] = SystemClock.uptimeMillis()
+    count++
+  }
+
+  /**
+   * the recorded lifecycle events from the oldest to the newest, one per line with its uptime
+   * in milliseconds, event name and page id
+   */
+  @JvmStatic
+  @Synchronized
+  fun dump(): String {
+    val size = minOf(count, events.size.toLong()).toInt()
+    val builder = StringBuilder(size * 32)
+    for (i in 0 until size) {
+      val index = ((count - size + i) % events.size).toInt()
+      builder.append(timestamps[index]).append(' ')
+          .append(nameOf(events[index])).append(' ')
+          .append(pageIds[index]).append('\n')
+    }
+    return builder.toString()
+  }
+
+  /**
+   * log the recorded lifecycle events when the app crashes, before the current uncaught
+   * exception handler runs
+   */
+  @JvmStatic
+  fun dumpOnCrash() {
+    val previous = Thread.getDefaultUncaughtExceptionHandler()
+    Thread.setDefaultUncaughtExceptionHandler { thread, error ->
+      Log.e("Bifrost", "Last page lifecycle events:\n" + dump())
+      previous?.uncaughtException(thread, error)
+    }
+  }
+
+  fun nameOf(event: Int): String {
+    return when (event) {
+      EVENT_CREATE -> "create"
+      EVENT_SHOW -> "show"
+      EVENT_DEALLOC -> "dealloc"
+      EVENT_BACK_PRESSED -> "backPressed"
+      EVENT_POP -> "pop"
+      EVENT_ATTACH -> "attach"
+      EVENT_CREATE_VIEW -> "createView"
+      EVENT_START -> "start"
+      EVENT_RESUME -> "resume"
+      EVENT_PAUSE -> "pause"
+      EVENT_STOP -> "stop"
+      EVENT_DESTROY_VIEW -> "destroyView"
+      EVENT_DETACH_HOST -> "detachHost"
+      EVENT_DETACH -> "detach"
+      EVENT_REATTACH -> "reattach"
+      else -> "unknown"
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package br.com.dextra.bifrost
+
+/**
+ * Snapshot of the traffic on the bifrost channels and of the page timings, see [Bifrost.metrics].
+ *
+ * @param reattachToFirstFrame Time from a page being reattached to the engine until it renders
+ * its first frame
+ * @param snapshotRemovalTimeouts Number of reattached pages whose snapshot was removed before
+ * they rendered any frame
+ * @param disposedPages Number of deallocated pages whose flutter container was unmounted
+ */
+data class BifrostMetrics(
+    val methods: List<BifrostMethodMetrics>,
+    val reattachToFirstFrame: BifrostLatency,
+    val snapshotRemovalTimeouts: Long,
+    val disposedPages: Long
+) {
+
+  fun of(channel: String, method: String): BifrostMethodMetrics? {
+    return methods.firstOrNull { it.channel == channel && it.method == method }
+  }
+}
+
+/**
+ * Traffic of one method of a bifrost channel, coordinator messages are grouped by opcode.
+ * Payloads are counted as encoded, including the replies.
+ */
+data class BifrostMethodMetrics(
+    val channel: String,
+    val method: String,
+    val calls: Long,
+    val bytesSent: Long,
+    val bytesReceived: Long,
+    val errors: Long,
+    val notImplemented: Long,
+    val latency: BifrostLatency
+)
+
+/**
+ * Round-trip latency in microseconds, from a message being sent or received until its reply.
+ */
+data class BifrostLatency(
+    val count: Long,
+    val meanMicros: Long,
+    val p50Micros: Long,
+    val p90Micros: Long,
+    val p99Micros: Long,
+    val maxMicros: Long
+)
+
+/**
+ * Navigation of the flutter pages as reported by their observers, see
+ * [Bifrost.navigationMetrics]. Counters cover every engine since it started, the latencies only
+ * the time metrics were enabled.
+ *
+ * @param meanPushToFirstFrameMicros Mean time from a route being pushed until the raster of the
+ * first frame built after it finishes
+ * @param stackDepths Number of routes in the navigator of each live page, by page id
+ */
+data class BifrostNavigationMetrics(
+    val pushes: Long,
+    val pops: Long,
+    val removes: Long,
+    val replaces: Long,
+    val firstFrames: Long,
+    val meanPushToFirstFrameMicros: Long,
+    val maxPushToFirstFrameMicros: Long,
+    val stackDepths: Map<Int, Int>
+) {
+
+  internal companion object {
+
+    /**
+     * merge the metrics replied by each engine, as encoded by flutter
+     */
+    fun merge(replies: List<Map<*, *>>): BifrostNavigationMetrics {
+      fun Map<*, *>.long(key: String) = (this[key] as? Number)?.toLong() ?: 0L
+
+      var firstFrames = 0L
+      var totalPushToFirstFrame = 0L
+      val stackDepths = hashMapOf<Int, Int>()
+      for (reply in replies) {
+        val count = reply.long("firstFrames")
+        firstFrames += count
+        totalPushToFirstFrame += reply.long("meanPushToFirstFrameMicros") * count
+        (reply["stackDepths"] as? Map<*, *>)?.forEach { (id, depth) ->
+          stackDepths[(id as Number).toInt()] = (depth as Number).toInt()
+        }
+      }
+      return BifrostNavigationMetrics(
+          pushes = replies.sumByLong { it.long("pushes") },
+          pops = replies.sumByLong { it.long("pops") },
+          removes = replies.sumByLong { it.long("removes") },
+          replaces = replies.sumByLong { it.long("replaces") },
+          firstFrames = firstFrames,
+          meanPushToFirstFrameMicros = if (firstFrames == 0L) 0 else totalPushToFirstFrame / firstFrames,
+          maxPushToFirstFrameMicros = replies.map { it.long("maxPushToFirstFrameMicros") }.max() ?: 0,
+          stackDepths = stackDepths)
+    }
+
+    private inline fun <T> List<T>.sumByLong(selector: (T) -> Long): Long {
+      var sum = 0L
+      for (element in this) sum += selector(element)
+      return sum
+    }
+  }
+}
+
+/**
+ * Receives the metrics periodically once enabled with [Bifrost.enableMetrics].
+ */
+interface BifrostMetricsSink {
+
+  fun onMetrics(metrics: BifrostMetrics)
+}
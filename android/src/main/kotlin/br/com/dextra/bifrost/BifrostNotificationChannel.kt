@@ -1,39 +1,126 @@
 package br.com.dextra.bifrost
 
+import io.flutter.plugin.common.BinaryMessenger
 import io.flutter.plugin.common.MethodCall
 import io.flutter.plugin.common.MethodChannel
+import java.lang.ref.WeakReference
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executor
 
+/**
+ * Delivers the notifications sent by flutter to every subscriber of their key.
+ *
+ * Subscribers may register from any thread. The changes are serialized by a lock, so a list is
+ * never dropped while a subscriber is added to it, and the dispatch reads the copy-on-write
+ * lists without locking. A key ending with [WILDCARD] subscribes to every key with that prefix.
+ */
 internal object BifrostNotificationChannel : MethodChannel.MethodCallHandler {
 
-  private val notifications = hashMapOf<String, BifrostNotificationCallback>()
-  private val channel = MethodChannel(Bifrost.engine.dartExecutor, "bifrost/notification")
+  const val WILDCARD = "*"
 
-  init {
-    channel.setMethodCallHandler(this)
+  private val subscriptions = ConcurrentHashMap<String, CopyOnWriteArrayList<Subscription>>()
+  private val prefixSubscriptions = CopyOnWriteArrayList<Subscription>()
+
+  fun attach(messenger: BinaryMessenger) {
+    MethodChannel(messenger, "bifrost/notification").setMethodCallHandler(this)
   }
 
-  fun register(key: String, callback: (arguments: Any?) -> Unit) {
-    notifications[key] = object : BifrostNotificationCallback {
+  fun register(key: String, executor: Executor, callback: (arguments: Any?) -> Unit) {
+    register(key, object : BifrostNotificationCallback {
       override fun onReceiveNotification(arguments: Any?) {
         callback.invoke(arguments)
       }
-    }
+    }, executor, false)
   }
 
-  fun register(key: String, callback: BifrostNotificationCallback) {
-    notifications[key] = callback
+  fun register(key: String, callback: BifrostNotificationCallback, executor: Executor, weak: Boolean) {
+    val subscription = Subscription(key, callback, executor, weak)
+    synchronized(subscriptions) {
+      if (key.endsWith(WILDCARD)) {
+        prefixSubscriptions.add(subscription)
+      } else {
+        subscriptions.getOrPut(key) { CopyOnWriteArrayList() }.add(subscription)
+      }
+    }
   }
 
   fun unregister(key: String) {
-    notifications.remove(key)
+    synchronized(subscriptions) {
+      if (key.endsWith(WILDCARD)) {
+        prefixSubscriptions.removeAll(prefixSubscriptions.filter { it.key == key })
+      } else {
+        subscriptions.remove(key)
+      }
+    }
+  }
+
+  fun unregister(key: String, callback: BifrostNotificationCallback) {
+    removeWhere(key) { it.callback.let { c -> c == null || c == callback } }
+  }
+
+  /**
+   * remove the subscriptions of the [key] that match the [predicate], and the key once it has
+   * none left
+   */
+  private inline fun removeWhere(key: String, predicate: (Subscription) -> Boolean) {
+    synchronized(subscriptions) {
+      val subscribers = if (key.endsWith(WILDCARD)) prefixSubscriptions else subscriptions[key]
+      // copy-on-write iterators do not support remove, so the matches are removed at once
+      subscribers?.removeAll(subscribers.filter { it.key == key && predicate(it) })
+      if (subscribers != null && subscribers !== prefixSubscriptions && subscribers.isEmpty()) {
+        subscriptions.remove(key)
+      }
+    }
   }
 
   override fun onMethodCall(call: MethodCall, result: MethodChannel.Result) {
     val key = call.method
     val args = call.arguments
-    notifications[key]?.onReceiveNotification(args)
+    var delivered = false
+    subscriptions[key]?.let {
+      delivered = dispatch(it, key, args)
+    }
+    if (prefixSubscriptions.isNotEmpty()) {
+      delivered = dispatch(prefixSubscriptions, key, args) || delivered
+    }
+
+    result.success(delivered)
+  }
+
+  private fun dispatch(subscribers: CopyOnWriteArrayList<Subscription>, key: String, args: Any?): Boolean {
+    var delivered = false
+    for (subscription in subscribers) {
+      if (!subscription.matches(key)) continue
+      val callback = subscription.callback
+      if (callback == null) {
+        // the weak listener was collected
+        removeWhere(subscription.key) { it === subscription }
+        continue
+      }
+      subscription.executor.execute { callback.onReceiveNotification(args) }
+      delivered = true
+    }
+    return delivered
+  }
+
+  private class Subscription(val key: String,
+                             callback: BifrostNotificationCallback,
+                             val executor: Executor,
+                             weak: Boolean) {
+
+    private val strongCallback = if (weak) null else callback
+    private val weakCallback = if (weak) WeakReference(callback) else null
 
-    result.success(notifications.containsKey(key))
+    private val prefix = key.removeSuffix(WILDCARD)
+    private val isPrefix = key.endsWith(WILDCARD)
+
+    val callback: BifrostNotificationCallback?
+      get() = strongCallback ?: weakCallback?.get()
+
+    fun matches(key: String): Boolean {
+      return if (isPrefix) key.startsWith(prefix) else key == this.key
+    }
   }
 }
 
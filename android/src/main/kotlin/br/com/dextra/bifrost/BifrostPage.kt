@@ -0,0 +1,31 @@
+package br.com.dextra.bifrost
+
+/**
+ * Lifecycle of a bifrost page as seen by its native host.
+ */
+enum class BifrostPageState {
+
+  /**
+   * the host was created but the page has not been shown yet
+   */
+  CREATED,
+
+  /**
+   * the page was shown at least once since its host was created
+   */
+  SHOWN,
+
+  /**
+   * the host was destroyed and flutter has not unmounted the page yet
+   */
+  DESTROYED
+}
+
+/**
+ * Page hosted by a [BifrostFlutterActivity] or a [BifrostFlutterFragment], see [Bifrost.pages].
+ */
+data class BifrostPage(
+    val id: Int,
+    val route: String,
+    val state: BifrostPageState
+)
@@ -0,0 +1,50 @@
+package br.com.dextra.bifrost
+
+/**
+ * Page created on the flutter side ahead of its host, see [Bifrost.prewarm]. It is consumed by
+ * `BifrostFlutterActivity.createIntent` or `BifrostFlutterFragment.newInstance`, and must be
+ * released if it ends up unused.
+ */
+class BifrostPageHandle internal constructor(
+    val id: Int,
+    val route: String,
+    internal val argumentsHandle: Long
+) {
+
+  internal companion object {
+
+    /**
+     * store the arguments and create the page, mounted right away when [prewarm] is set
+     */
+    fun create(route: String, arguments: Any?, prewarm: Boolean): BifrostPageHandle {
+      val encodedArguments = arguments?.let { Bifrost.argumentCodec.encode(it) }
+      val id = Bifrost.generatePageId()
+      val argumentsHandle = encodedArguments?.let { BifrostArgumentStore.put(id, it) } ?: 0L
+      if (prewarm) {
+        BifrostCoordinatorChannel.onPrewarmPage(id, route, argumentsHandle)
+      } else {
+        BifrostCoordinatorChannel.onCreatePage(id, route, argumentsHandle)
+      }
+      return BifrostPageHandle(id, route, argumentsHandle)
+    }
+  }
+
+  private var isConsumed = false
+
+  internal fun consume(): BifrostPageHandle {
+    check(!isConsumed) { "The page $id was already used or released" }
+    isConsumed = true
+    return this
+  }
+
+  /**
+   * dispose the prewarmed page when no host was created for it
+   */
+  fun release() {
+    if (!isConsumed) {
+      isConsumed = true
+      BifrostCoordinatorChannel.onDeallocPage(id)
+      BifrostArgumentStore.remove(argumentsHandle)
+    }
+  }
+}
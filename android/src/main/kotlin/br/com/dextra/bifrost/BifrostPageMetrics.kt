@@ -0,0 +1,36 @@
+package br.com.dextra.bifrost
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Records the page lifecycle timings, once enabled with [Bifrost.enableMetrics].
+ */
+internal object BifrostPageMetrics {
+
+  private val reattachToFirstFrame = BifrostLatencyHistogram()
+  private val snapshotRemovalTimeouts = AtomicLong()
+  private val disposedPages = AtomicLong()
+
+  fun onReattachFirstFrame(micros: Long) {
+    if (BifrostChannelMetrics.isEnabled) {
+      reattachToFirstFrame.record(micros)
+    }
+  }
+
+  fun onSnapshotRemovalTimeout() {
+    if (BifrostChannelMetrics.isEnabled) {
+      snapshotRemovalTimeouts.incrementAndGet()
+    }
+  }
+
+  fun onPageDisposed() {
+    if (BifrostChannelMetrics.isEnabled) {
+      disposedPages.incrementAndGet()
+    }
+  }
+
+  fun snapshot(methods: List<BifrostMethodMetrics>): BifrostMetrics {
+    return BifrostMetrics(methods, reattachToFirstFrame.snapshot(), snapshotRemovalTimeouts.get(),
+        disposedPages.get())
+  }
+}
@@ -0,0 +1,119 @@
+package br.com.dextra.bifrost
+
+import android.app.Activity
+import android.os.SystemClock
+import androidx.fragment.app.Fragment
+import java.lang.ref.WeakReference
+
+/**
+ * Live pages by id, holding their hosts weakly. Only accessed from the platform thread.
+ */
+internal object BifrostPageRegistry {
+
+  // time flutter has to unmount a deallocated page before it is reported as leaked
+  private const val LEAK_TIMEOUT_MILLIS = 5_000L
+
+  private class Entry(val id: Int, val route: String, host: Any) {
+    var host = WeakReference(host)
+    var state = BifrostPageState.CREATED
+    var destroyedAtMillis = 0L
+
+    fun toPage() = BifrostPage(id, route, state)
+  }
+
+  // insertion ordered, a shown page is moved to the end so the iteration follows the stack order
+  private val entries = LinkedHashMap<Int, Entry>()
+
+  /**
+   * register the [host] of the page, a host recreated after a configuration change replaces
+   * the previous one
+   */
+  fun register(pageId: Int, route: String, host: Any) {
+    val entry = entries[pageId]
+    if (entry != null) {
+      entry.host = WeakReference(host)
+      entry.state = BifrostPageState.CREATED
+    } else {
+      entries[pageId] = Entry(pageId, route, host)
+    }
+  }
+
+  fun onShown(pageId: Int) {
+    val entry = entries.remove(pageId) ?: return
+    entry.state = BifrostPageState.SHOWN
+    entries[pageId] = entry
+  }
+
+  fun onDestroyed(pageId: Int) {
+    val entry = entries[pageId] ?: return
+    entry.state = BifrostPageState.DESTROYED
+    entry.destroyedAtMillis = SystemClock.uptimeMillis()
+  }
+
+  /**
+   * flutter unmounted the page, or its engine was destroyed in the multi-engine mode
+   */
+  fun onDisposed(pageId: Int) {
+    if (entries[pageId]?.state == BifrostPageState.DESTROYED) {
+      entries.remove(pageId)
+    }
+  }
+
+  fun route(pageId: Int): String? {
+    return entries[pageId]?.route
+  }
+
+  fun host(pageId: Int): Any? {
+    return entries[pageId]?.host?.get()
+  }
+
+  /**
+   * pop the page when flutter has no route left to pop, returns false if its host is gone or
+   * cannot be removed
+   */
+  fun pop(pageId: Int): Boolean {
+    when (val host = host(pageId)) {
+      is Activity -> host.finish()
+      is Fragment -> return popFragment(host)
+      else -> return false
+    }
+    return true
+  }
+
+  /**
+   * remove the [fragment] through its own manager, so neither another fragment nor the activity
+   * is popped. With a back stack, the visible page that pops is taken as its top entry.
+   */
+  private fun popFragment(fragment: Fragment): Boolean {
+    @Suppress("DEPRECATION")
+    val manager = fragment.fragmentManager ?: return false
+    if (!fragment.isAdded || fragment.isRemoving || manager.isStateSaved) return false
+    if (manager.backStackEntryCount > 0) {
+      manager.popBackStack()
+    } else {
+      manager.beginTransaction().remove(fragment).commit()
+    }
+    return true
+  }
+
+  fun pages(): List<BifrostPage> {
+    return entries.values.map { it.toPage() }
+  }
+
+  /**
+   * pages whose host was destroyed but flutter did not unmount them in time, or whose host was
+   * collected without being destroyed
+   */
+  fun leakedPages(): List<BifrostPage> {
+    val now = SystemClock.uptimeMillis()
+    return entries.values
+        .filter {
+          if (it.state == BifrostPageState.DESTROYED) {
+            now - it.destroyedAtMillis > LEAK_TIMEOUT_MILLIS
+          } else {
+            it.host.get() == null
+          }
+        }
+        .map { it.toPage() }
+  }
+}
@@ -0,0 +1,48 @@
+package br.com.dextra.bifrost
+
+import android.os.Parcel
+import android.os.Parcelable
+
+/**
+ * [BifrostStandardArgumentCodec] that also accepts Parcelable values. They reach dart as
+ * opaque byte arrays (Uint8List) that can be handed back to native code and restored with
+ * [unmarshall].
+ */
+class BifrostParcelableArgumentCodec : BifrostStandardArgumentCodec() {
+
+  companion object {
+    /**
+     * restore a Parcelable value passed through dart
+     */
+    @JvmStatic
+    fun <T : Parcelable> unmarshall(bytes: ByteArray, creator: Parcelable.Creator<T>): T {
+      val parcel = Parcel.obtain()
+      try {
+        parcel.unmarshall(bytes, 0, bytes.size)
+        parcel.setDataPosition(0)
+        return creator.createFromParcel(parcel)
+      } finally {
+        parcel.recycle()
+      }
+    }
+  }
+
+  override fun writeValue(value: Any?) {
+    if (value is Parcelable) {
+      writeByte(BYTE_ARRAY)
+      writeBytes(marshall(value))
+    } else {
+      super.writeValue(value)
+    }
+  }
+
+  private fun marshall(value: Parcelable): ByteArray {
+    val parcel = Parcel.obtain()
+    try {
+      value.writeToParcel(parcel, 0)
+      return parcel.marshall()
+    } finally {
+      parcel.recycle()
+    }
+  }
+}
@@ -7,7 +7,7 @@ import java.lang.ref.WeakReference
 class BifrostPlugin : FlutterPlugin {
 
   override fun onDetachedFromEngine(@NonNull binding: FlutterPlugin.FlutterPluginBinding) {
-    BifrostCoordinatorChannel.setMethodCallHandler(null)
+    BifrostCoordinatorChannel.detach(binding.binaryMessenger)
   }
 
   override fun onAttachedToEngine(binding: FlutterPlugin.FlutterPluginBinding) {
@@ -0,0 +1,24 @@
+package br.com.dextra.bifrost
+
+import android.graphics.Bitmap
+
+/**
+ * Defines how the snapshots shown in place of the pages detached from the engine are kept.
+ *
+ * @param scale Size of the snapshots relative to the flutter view
+ * @param bitmapConfig Bitmap config of the snapshots, by default RGB_565 for opaque pages and
+ * ARGB_8888 for transparent ones. HARDWARE bitmaps, available from API 26, are never reused.
+ * @param maxBytes Memory budget of the snapshots, beyond it the snapshots of the pages detached
+ * first, the furthest from the top of the stack, are dropped
+ * @param crossFadeMillis Duration of the cross-fade from the snapshot to the reattached page,
+ * which starts as soon as the page renders its first frame
+ * @param removalTimeoutMillis The snapshot is removed after this long even if the reattached
+ * page did not render any frame
+ */
+class BifrostSnapshotConfig @JvmOverloads constructor(
+    val scale: Float = 0.5f,
+    val bitmapConfig: Bitmap.Config? = null,
+    val maxBytes: Int = 16 * 1024 * 1024,
+    val crossFadeMillis: Long = 150,
+    val removalTimeoutMillis: Long = 2000
+)
@@ -0,0 +1,102 @@
+package br.com.dextra.bifrost
+
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Color
+import android.graphics.Paint
+import android.graphics.Rect
+import android.os.Build
+import kotlin.math.roundToInt
+
+/**
+ * Downsampled snapshots of the detached pages, bounded by [BifrostSnapshotConfig.maxBytes].
+ *
+ * Snapshots are kept in detach order, so the eldest belong to the pages furthest from the top
+ * of the stack and are evicted first. Released bitmaps are reused by the next snapshot of the
+ * same size. Only used from the main thread.
+ */
+internal object BifrostSnapshotPool {
+
+  private val snapshots = LinkedHashMap<BifrostSnapshotSplashScreen, Bitmap>()
+  private val free = arrayListOf<Bitmap>()
+  private val paint = Paint(Paint.FILTER_BITMAP_FLAG)
+  private var bytes = 0
+
+  fun capture(owner: BifrostSnapshotSplashScreen, source: Bitmap, isOpaque: Boolean): Bitmap =
+      BifrostTrace.trace({ "Bifrost.captureSnapshot ${source.width}x${source.height}" }) {
+        captureScaled(owner, source, isOpaque)
+      }
+
+  private fun captureScaled(owner: BifrostSnapshotSplashScreen,
+                            source: Bitmap,
+                            isOpaque: Boolean): Bitmap {
+    val config = Bifrost.snapshotConfig
+    val width = maxOf(1, (source.width * config.scale).roundToInt())
+    val height = maxOf(1, (source.height * config.scale).roundToInt())
+
+    val snapshot = if (isHardware(config.bitmapConfig)) {
+      val scaled = Bitmap.createScaledBitmap(source, width, height, true)
+      scaled.copy(Bitmap.Config.HARDWARE, false).also {
+        if (scaled !== source) scaled.recycle()
+      }
+    } else {
+      val bitmapConfig = config.bitmapConfig
+          ?: if (isOpaque) Bitmap.Config.RGB_565 else Bitmap.Config.ARGB_8888
+      obtain(width, height, bitmapConfig).also {
+        Canvas(it).drawBitmap(source, null, Rect(0, 0, width, height), paint)
+      }
+    }
+    // the full resolution copy of the surface is no longer needed
+    source.recycle()
+
+    snapshots.put(owner, snapshot)?.let { recycle(it) }
+    bytes += snapshot.byteCount
+    trim(config.maxBytes, owner)
+    return snapshot
+  }
+
+  fun release(owner: BifrostSnapshotSplashScreen) {
+    val snapshot = snapshots.remove(owner) ?: return
+    if (snapshot.isMutable) {
+      free.add(snapshot)
+      trim(Bifrost.snapshotConfig.maxBytes, null)
+    } else {
+      recycle(snapshot)
+    }
+  }
+
+  // the HARDWARE constant does not exist before API 26
+  private fun isHardware(config: Bitmap.Config?): Boolean {
+    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == Bitmap.Config.HARDWARE
+  }
+
+  private fun obtain(width: Int, height: Int, config: Bitmap.Config): Bitmap {
+    val index = free.indexOfFirst { it.width == width && it.height == height && it.config == config }
+    if (index == -1) {
+      return Bitmap.createBitmap(width, height, config)
+    }
+    val bitmap = free.removeAt(index)
+    bytes -= bitmap.byteCount
+    bitmap.eraseColor(Color.TRANSPARENT)
+    return bitmap
+  }
+
+  private fun trim(maxBytes: Int, keep: BifrostSnapshotSplashScreen?) {
+    while (bytes > maxBytes && free.isNotEmpty()) {
+      recycle(free.removeAt(free.size - 1))
+    }
+    val iterator = snapshots.entries.iterator()
+    while (bytes > maxBytes && iterator.hasNext()) {
+      val eldest = iterator.next()
+      if (eldest.key === keep) continue
+      iterator.remove()
+      eldest.key.onSnapshotEvicted()
+      recycle(eldest.value)
+    }
+  }
+
+  private fun recycle(bitmap: Bitmap) {
+    bytes -= bitmap.byteCount
+    bitmap.recycle()
+  }
+}
@@ -1,21 +1,40 @@
 package br.com.dextra.bifrost
 
 import android.animation.Animator
+import android.animation.AnimatorListenerAdapter
 import android.content.Context
 import android.graphics.Bitmap
 import android.os.Bundle
+import android.os.Handler
+import android.os.Looper
 import android.view.View
+import android.view.ViewGroup
 import android.widget.ImageView
+import io.flutter.embedding.android.FlutterView
 import io.flutter.embedding.android.SplashScreen
 import io.flutter.embedding.engine.FlutterEngine
+import io.flutter.embedding.engine.renderer.FlutterUiDisplayListener
 
-class BifrostSnapshotSplashScreen(flutterEngine: FlutterEngine) : SplashScreen {
+/**
+ * Shows a downsampled snapshot of the flutter view while the page is detached from the engine.
+ * The bitmap comes from [BifrostSnapshotPool] and must be given back with [release].
+ */
+class BifrostSnapshotSplashScreen @JvmOverloads constructor(
+    flutterEngine: FlutterEngine,
+    isOpaque: Boolean = true
+) : SplashScreen {
 
-  private var flutterViewSnapshot: Bitmap? = flutterEngine.renderer.bitmap
-  private var splashView: View? = null
+  private var flutterViewSnapshot: Bitmap? = null
+  private var splashView: ImageView? = null
+
+  init {
+    val bitmap: Bitmap? = flutterEngine.renderer.bitmap
+    flutterViewSnapshot = bitmap?.let { BifrostSnapshotPool.capture(this, it, isOpaque) }
+  }
 
   override fun createSplashView(context: Context, savedInstanceState: Bundle?): View? {
     val splash = ImageView(context)
+    splash.scaleType = ImageView.ScaleType.FIT_XY
     splash.setImageBitmap(flutterViewSnapshot)
     splashView = splash
     return splash
@@ -44,4 +63,84 @@ class BifrostSnapshotSplashScreen(flutterEngine: FlutterEngine) : SplashScreen {
               override fun onAnimationRepeat(animation: Animator) {}
             })
   }
+
+  /**
+   * cross-fade from the snapshot [view] to [flutterView] once it renders its first frame after
+   * being reattached, or after [BifrostSnapshotConfig.removalTimeoutMillis], then remove it
+   * from [container] and release the snapshot
+   */
+  fun removeOnFirstFrame(container: ViewGroup, view: View, flutterView: FlutterView) {
+    SnapshotRemoval(container, view, flutterView).start()
+  }
+
+  /**
+   * give the snapshot back to the pool once it is no longer shown
+   */
+  fun release() {
+    splashView?.setImageDrawable(null)
+    flutterViewSnapshot = null
+    BifrostSnapshotPool.release(this)
+  }
+
+  internal fun onSnapshotEvicted() {
+    splashView?.setImageDrawable(null)
+    flutterViewSnapshot = null
+  }
+
+  private inner class SnapshotRemoval(private val container: ViewGroup,
+                                      private val view: View,
+                                      private val flutterView: FlutterView)
+    : FlutterUiDisplayListener, Runnable {
+
+    private val handler = Handler(Looper.getMainLooper())
+    private val config = Bifrost.snapshotConfig
+    private val startNanos = System.nanoTime()
+    private var isRemoving = false
+
+    fun start() {
+      flutterView.addOnFirstFrameRenderedListener(this)
+      handler.postDelayed(this, config.removalTimeoutMillis)
+    }
+
+    override fun onFlutterUiDisplayed() {
+      if (isRemoving) return
+      BifrostPageMetrics.onReattachFirstFrame((System.nanoTime() - startNanos) / 1000)
+      remove()
+    }
+
+    override fun onFlutterUiNoLongerDisplayed() {}
+
+    // timeout
+    override fun run() {
+      if (isRemoving) return
+      BifrostPageMetrics.onSnapshotRemovalTimeout()
+      remove()
+    }
+
+    private fun remove() {
+      isRemoving = true
+      handler.removeCallbacks(this)
+      // the flutter view is notifying its listeners, which must not change meanwhile
+      handler.post { flutterView.removeOnFirstFrameRenderedListener(this) }
+
+      if (config.crossFadeMillis <= 0) {
+        finish()
+        return
+      }
+      view.animate()
+          .alpha(0.0f)
+          .setDuration(config.crossFadeMillis)
+          .setListener(object : AnimatorListenerAdapter() {
+            // also called when the animation is cancelled
+            override fun onAnimationEnd(animation: Animator) {
+              finish()
+            }
+          })
+    }
+
+    private fun finish() {
+      container.removeView(view)
+      release()
+    }
+  }
 }
@@ -0,0 +1,246 @@
+package br.com.dextra.bifrost
+
+/**
+ * Default [BifrostArgumentCodec], writes the StandardMessageCodec format directly into a
+ * reusable buffer.
+ *
+ * Supports null, Boolean, Int, Short, Byte, Long, Float, Double, CharSequence, ByteArray,
+ * IntArray, LongArray, DoubleArray and Lists or Maps of them.
+ */
+open class BifrostStandardArgumentCodec : BifrostArgumentCodec {
+
+  companion object {
+    const val NULL: Byte = 0
+    const val TRUE: Byte = 1
+    const val FALSE: Byte = 2
+    const val INT: Byte = 3
+    const val LONG: Byte = 4
+    const val DOUBLE: Byte = 6
+    const val STRING: Byte = 7
+    const val BYTE_ARRAY: Byte = 8
+    const val INT_ARRAY: Byte = 9
+    const val LONG_ARRAY: Byte = 10
+    const val DOUBLE_ARRAY: Byte = 11
+    const val LIST: Byte = 12
+    const val MAP: Byte = 13
+  }
+
+  private var buffer = ByteArray(256)
+  private var position = 0
+
+  @Synchronized
+  override fun encode(arguments: Any?): ByteArray {
+    position = 0
+    writeValue(arguments)
+    return buffer.copyOf(position)
+  }
+
+  override fun decode(bytes: ByteArray): Any? {
+    return Reader(bytes).readValue()
+  }
+
+  protected open fun writeValue(value: Any?) {
+    when (value) {
+      null -> writeByte(NULL)
+      is Boolean -> writeByte(if (value) TRUE else FALSE)
+      is Int, is Short, is Byte -> {
+        writeByte(INT)
+        writeInt((value as Number).toInt())
+      }
+      is Long -> {
+        writeByte(LONG)
+        writeLong(value)
+      }
+      is Float, is Double -> {
+        writeByte(DOUBLE)
+        writeAlignment(8)
+        writeLong(java.lang.Double.doubleToLongBits((value as Number).toDouble()))
+      }
+      is CharSequence -> {
+        writeByte(STRING)
+        writeBytes(value.toString().toByteArray(Charsets.UTF_8))
+      }
+      is ByteArray -> {
+        writeByte(BYTE_ARRAY)
+        writeBytes(value)
+      }
+      is IntArray -> {
+        writeByte(INT_ARRAY)
+        writeSize(value.size)
+        writeAlignment(4)
+        value.forEach { writeInt(it) }
+      }
+      is LongArray -> {
+        writeByte(LONG_ARRAY)
+        writeSize(value.size)
+        writeAlignment(8)
+        value.forEach { writeLong(it) }
+      }
+      is DoubleArray -> {
+        writeByte(DOUBLE_ARRAY)
+        writeSize(value.size)
+        writeAlignment(8)
+        value.forEach { writeLong(java.lang.Double.doubleToLongBits(it)) }
+      }
+      is List<*> -> {
+        writeByte(LIST)
+        writeSize(value.size)
+        value.forEach { writeValue(it) }
+      }
+      is Map<*, *> -> {
+        writeByte(MAP)
+        writeSize(value.size)
+        value.forEach { (key, item) ->
+          writeValue(key)
+          writeValue(item)
+        }
+      }
+      else -> throw IllegalArgumentException(
+          "Unsupported argument value: '$value' of type '${value.javaClass}'")
+    }
+  }
+
+  protected fun writeByte(value: Byte) {
+    ensureCapacity(1)
+    buffer[position++] = value
+  }
+
+  protected fun writeBytes(value: ByteArray) {
+    writeSize(value.size)
+    ensureCapacity(value.size)
+    System.arraycopy(value, 0, buffer, position, value.size)
+    position += value.size
+  }
+
+  private fun writeSize(value: Int) {
+    when {
+      value < 254 -> writeByte(value.toByte())
+      value <= 0xffff -> {
+        writeByte(254.toByte())
+        ensureCapacity(2)
+        buffer[position++] = value.toByte()
+        buffer[position++] = (value ushr 8).toByte()
+      }
+      else -> {
+        writeByte(255.toByte())
+        writeInt(value)
+      }
+    }
+  }
+
+  private fun writeInt(value: Int) {
+    ensureCapacity(4)
+    for (shift in 0 until 32 step 8) {
+      buffer[position++] = (value ushr shift).toByte()
+    }
+  }
+
+  private fun writeLong(value: Long) {
+    ensureCapacity(8)
+    for (shift in 0 until 64 step 8) {
+      buffer[position++] = (value ushr shift).toByte()
+    }
+  }
+
+  private fun writeAlignment(alignment: Int) {
+    val mod = position % alignment
+    if (mod != 0) {
+      ensureCapacity(alignment - mod)
+      repeat(alignment - mod) { buffer[position++] = 0 }
+    }
+  }
+
+  private fun ensureCapacity(extra: Int) {
+    if (position + extra > buffer.size) {
+      buffer = buffer.copyOf(maxOf(buffer.size * 2, position + extra))
+    }
+  }
+
+  private class Reader(private val bytes: ByteArray) {
+
+    private var position = 0
+
+    fun readValue(): Any? {
+      return when (val type = bytes[position++]) {
+        NULL -> null
+        TRUE -> true
+        FALSE -> false
+        INT -> readInt()
+        LONG -> readLong()
+        DOUBLE -> {
+          readAlignment(8)
+          java.lang.Double.longBitsToDouble(readLong())
+        }
+        STRING -> String(readBytes(), Charsets.UTF_8)
+        BYTE_ARRAY -> readBytes()
+        INT_ARRAY -> {
+          val size = readSize()
+          readAlignment(4)
+          IntArray(size) { readInt() }
+        }
+        LONG_ARRAY -> {
+          val size = readSize()
+          readAlignment(8)
+          LongArray(size) { readLong() }
+        }
+        DOUBLE_ARRAY -> {
+          val size = readSize()
+          readAlignment(8)
+          DoubleArray(size) { java.lang.Double.longBitsToDouble(readLong()) }
+        }
+        LIST -> {
+          val size = readSize()
+          ArrayList<Any?>(size).apply { repeat(size) { add(readValue()) } }
+        }
+        MAP -> {
+          val size = readSize()
+          HashMap<Any?, Any?>(size).apply { repeat(size) { put(readValue(), readValue()) } }
+        }
+        else -> throw IllegalArgumentException("Message corrupted, unknown type: $type")
+      }
+    }
+
+    private fun readSize(): Int {
+      val value = bytes[position++].toInt() and 0xff
+      return when {
+        value < 254 -> value
+        value == 254 -> {
+          val size = (bytes[position].toInt() and 0xff) or ((bytes[position + 1].toInt() and 0xff) shl 8)
+          position += 2
+          size
+        }
+        else -> readInt()
+      }
+    }
+
+    private fun readBytes(): ByteArray {
+      val size = readSize()
+      val value = bytes.copyOfRange(position, position + size)
+      position += size
+      return value
+    }
+
+    private fun readInt(): Int {
+      var value = 0
+      for (shift in 0 until 32 step 8) {
+        value = value or ((bytes[position++].toInt() and 0xff) shl shift)
+      }
+      return value
+    }
+
+    private fun readLong(): Long {
+      var value = 0L
+      for (shift in 0 until 64 step 8) {
+        value = value or ((bytes[position++].toLong() and 0xff) shl shift)
+      }
+      return value
+    }
+
+    private fun readAlignment(alignment: Int) {
+      val mod = position % alignment
+      if (mod != 0) {
+        position += alignment - mod
+      }
+    }
+  }
+}
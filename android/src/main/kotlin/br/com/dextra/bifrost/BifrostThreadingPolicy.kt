@@ -0,0 +1,46 @@
+package br.com.dextra.bifrost
+
+import java.util.concurrent.Executor
+
+/**
+ * Defines the thread where the common method call handler runs.
+ *
+ * Calls run on [executor] except the [mainThreadMethods], which stay on the main thread. The
+ * handler may reply from any thread, results are posted back to the main thread.
+ */
+class BifrostThreadingPolicy private constructor(
+    val executor: Executor,
+    val mainThreadMethods: Set<String>,
+    internal val usesTaskQueue: Boolean
+) {
+
+  @JvmOverloads
+  constructor(executor: Executor, mainThreadMethods: Set<String> = emptySet()) :
+      this(executor, mainThreadMethods, false)
+
+  companion object {
+
+    /**
+     * every call runs on the main thread
+     */
+    @JvmField
+    val MAIN = BifrostThreadingPolicy(BifrostExecutors.INLINE)
+
+    /**
+     * calls run on the shared background pool of [BifrostExecutors]
+     */
+    @JvmField
+    val BACKGROUND = BifrostThreadingPolicy(BifrostExecutors.BACKGROUND)
+
+    /**
+     * calls run in order on a background task queue of the engine messenger, which takes their
+     * replies from its own thread. Embeddings without task queues, before Flutter 2.5, run them
+     * on the shared background pool instead.
+     */
+    @JvmStatic
+    @JvmOverloads
+    fun taskQueue(mainThreadMethods: Set<String> = emptySet()): BifrostThreadingPolicy {
+      return BifrostThreadingPolicy(BifrostExecutors.BACKGROUND, mainThreadMethods, true)
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package br.com.dextra.bifrost
+
+import android.os.Build
+import android.os.Trace
+
+/**
+ * Receives the trace sections of bifrost, see [BifrostTrace.tracer].
+ */
+interface BifrostTracer {
+
+  /**
+   * whether sections are being recorded, names are only built when it is true
+   */
+  val isEnabled: Boolean
+
+  fun beginSection(name: String)
+
+  fun endSection()
+
+  companion object {
+
+    /**
+     * records the sections with [android.os.Trace], so they show up in systrace and perfetto
+     */
+    @JvmField
+    val SYSTEM: BifrostTracer = object : BifrostTracer {
+
+      // the section names are built on every page switch, skip them unless a trace is running
+      override val isEnabled: Boolean
+        get() = when {
+          Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q -> Trace.isEnabled()
+          else -> Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
+        }
+
+      override fun beginSection(name: String) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+          // longer names are rejected by the platform
+          Trace.beginSection(if (name.length > 127) name.substring(0, 127) else name)
+        }
+      }
+
+      override fun endSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+          Trace.endSection()
+        }
+      }
+    }
+
+    /**
+     * records nothing, for JVM unit tests where the android classes are stubs
+     */
+    @JvmField
+    val NONE: BifrostTracer = object : BifrostTracer {
+      override val isEnabled = false
+      override fun beginSection(name: String) {}
+      override fun endSection() {}
+    }
+  }
+}
+
+/**
+ * Trace sections around the page lifecycle and the coordinator calls, named after the page id
+ * and route so the native and flutter sides of a navigation line up in one system trace.
+ */
+object BifrostTrace {
+
+  @JvmStatic
+  var tracer: BifrostTracer = BifrostTracer.SYSTEM
+
+  @JvmStatic
+  val isEnabled: Boolean
+    get() = tracer.isEnabled
+
+  /**
+   * begin a section if tracing is enabled, returns whether it must be ended with [endSection]
+   */
+  @JvmStatic
+  fun beginSection(name: String): Boolean {
+    val tracer = tracer
+    if (!tracer.isEnabled) return false
+    tracer.beginSection(name)
+    return true
+  }
+
+  @JvmStatic
+  fun endSection(begun: Boolean) {
+    if (begun) tracer.endSection()
+  }
+
+  internal inline fun <T> trace(name: () -> String, block: () -> T): T {
+    val begun = tracer.isEnabled
+    if (begun) tracer.beginSection(name())
+    try {
+      return block()
+    } finally {
+      endSection(begun)
+    }
+  }
+
+  internal fun pageName(section: String, pageId: Int): String {
+    val route = BifrostPageRegistry.route(pageId)
+    return if (route != null) "$section $pageId $route" else "$section $pageId"
+  }
+}
@@ -0,0 +1,28 @@
+package br.com.dextra.bifrost
+
+/**
+ * Defines when the bifrost flutter engine is created and starts running dart code.
+ */
+enum class BifrostWarmUpPolicy {
+
+  /**
+   * create the engine synchronously inside [Bifrost.startFlutterEngine]
+   */
+  EAGER,
+
+  /**
+   * create the engine when the main thread becomes idle for the first time
+   */
+  IDLE,
+
+  /**
+   * create the engine on the first `createIntent` or `newInstance` call
+   */
+  FIRST_USE,
+
+  /**
+   * start loader and asset initialization on a background thread right away and create
+   * the engine as soon as it completes
+   */
+  BACKGROUND
+}
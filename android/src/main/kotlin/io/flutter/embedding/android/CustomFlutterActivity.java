@@ -27,7 +27,7 @@ import androidx.lifecycle.Lifecycle;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.LifecycleRegistry;
 
-import io.flutter.Log;
+import br.com.dextra.bifrost.BifrostLogger;
 import io.flutter.embedding.android.FlutterActivityLaunchConfigs.BackgroundMode;
 import io.flutter.embedding.engine.FlutterEngine;
 import io.flutter.embedding.engine.FlutterShellArgs;
@@ -458,10 +458,10 @@ public class CustomFlutterActivity extends Activity
           setTheme(normalThemeRID);
         }
       } else {
-        Log.v(TAG, "Using the launch theme as normal theme.");
+        BifrostLogger.v(TAG, "Using the launch theme as normal theme.");
       }
     } catch (PackageManager.NameNotFoundException exception) {
-      Log.e(
+      BifrostLogger.e(
           TAG,
           "Could not read meta-data for CustomFlutterActivity. Using the launch theme as normal theme.");
     }
@@ -993,20 +993,35 @@ public class CustomFlutterActivity extends Activity
     return getCachedEngineId() == null;
   }
 
+  // bifrost implementation
+  @NonNull
+  @Override
+  public String getTraceName() {
+    return getClass().getSimpleName();
+  }
+
+  // bifrost implementation
+  @Override
+  public int getBifrostPageId() {
+    return 0;
+  }
+
   // bifrost implementation
   @Override
   public void detachFromFlutterEngine() {
     if (delegate != null) {
-      Log.v(
-          TAG,
-          "CustomFlutterActivity "
-              + this
-              + " connection to the engine "
-              + getFlutterEngine()
-              + " evicted by another attaching activity");
+      if (BifrostLogger.isLoggable(BifrostLogger.VERBOSE)) {
+        BifrostLogger.v(
+            TAG,
+            "CustomFlutterActivity "
+                + this
+                + " connection to the engine "
+                + getFlutterEngine()
+                + " evicted by another attaching activity");
+      }
       delegate.detach();
     } else {
-      Log.w(TAG, "delegate has been released !!");
+      BifrostLogger.w(TAG, "delegate has been released !!");
     }
   }
 
@@ -1014,7 +1029,10 @@ public class CustomFlutterActivity extends Activity
   @Override
   public boolean stillAttachedForEvent(String event) {
     if (delegate.isDetached()) {
-      Log.v(TAG, "CustomFlutterActivity " + hashCode() + " " + event + " called after release.");
+      if (BifrostLogger.isLoggable(BifrostLogger.VERBOSE)) {
+        BifrostLogger.v(
+            TAG, "CustomFlutterActivity " + hashCode() + " " + event + " called after release.");
+      }
       return false;
     }
     return true;
@@ -12,7 +12,6 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.Handler;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -21,9 +20,10 @@ import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.lifecycle.Lifecycle;
 
+import br.com.dextra.bifrost.BifrostLogger;
 import br.com.dextra.bifrost.BifrostSnapshotSplashScreen;
+import br.com.dextra.bifrost.BifrostTrace;
 import io.flutter.FlutterInjector;
-import io.flutter.Log;
 import io.flutter.embedding.engine.FlutterEngine;
 import io.flutter.embedding.engine.FlutterEngineCache;
 import io.flutter.embedding.engine.FlutterShellArgs;
@@ -31,6 +31,9 @@ import io.flutter.embedding.engine.dart.DartExecutor;
 import io.flutter.embedding.engine.renderer.FlutterUiDisplayListener;
 import io.flutter.plugin.platform.PlatformPlugin;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Delegate that implements all Flutter logic that is the same between a {@link CustomFlutterActivity} and
@@ -71,7 +74,9 @@ import java.util.Arrays;
   private static final String PLUGINS_RESTORATION_BUNDLE_KEY = "plugins";
 
   // bifrost implementation
-  static Host currentHost;
+  // the host currently attached to each engine, a single engine is shared by every host unless
+  // the multi-engine mode is enabled
+  static final Map<FlutterEngine, Host> currentHosts = new HashMap<>();
 
   // The CustomFlutterActivity or CustomFlutterFragment that is delegating most of its calls
   // to this CustomFlutterActivityAndFragmentDelegate.
@@ -128,38 +133,55 @@ import java.util.Arrays;
       return;
     }
 
-    Log.w(TAG, "detach " + flutterView.toString());
+    final boolean traced = beginTrace("Bifrost.detach");
+    try {
+      BifrostLogger.v(TAG, "detach()");
+      BifrostLogger.event(BifrostLogger.EVENT_DETACH, host.getBifrostPageId());
+
+      if (host.shouldAttachEngineToActivity()) {
+        // Notify plugins that they are no longer attached to an Activity.
+        BifrostLogger.v(TAG, "Detaching FlutterEngine from the Activity that owns this Fragment.");
+        if (requireNonNull(host.getActivity()).isChangingConfigurations()) {
+          flutterEngine.getActivityControlSurface().detachFromActivityForConfigChanges();
+        } else {
+          flutterEngine.getActivityControlSurface().detachFromActivity();
+        }
+      }
 
-    if (host.shouldAttachEngineToActivity()) {
-      // Notify plugins that they are no longer attached to an Activity.
-      Log.v(TAG, "Detaching FlutterEngine from the Activity that owns this Fragment.");
-      if (requireNonNull(host.getActivity()).isChangingConfigurations()) {
-        flutterEngine.getActivityControlSurface().detachFromActivityForConfigChanges();
-      } else {
-        flutterEngine.getActivityControlSurface().detachFromActivity();
+      // Null out the platformPlugin to avoid a possible retain cycle between the plugin, this
+      // Fragment,
+      // and this Fragment's Activity.
+      // if (platformPlugin != null) {
+      //  platformPlugin.destroy();
+      //  platformPlugin = null;
+      // }
+      isDetached = true;
+      if (currentHosts.get(flutterEngine) == host) {
+        currentHosts.remove(flutterEngine);
       }
-    }
 
-    // Null out the platformPlugin to avoid a possible retain cycle between the plugin, this
-    // Fragment,
-    // and this Fragment's Activity.
-    // if (platformPlugin != null) {
-    //  platformPlugin.destroy();
-    //  platformPlugin = null;
-    // }
-    isDetached = true;
+      reAttachSplashScreen =
+          new BifrostSnapshotSplashScreen(
+              flutterEngine, host.getTransparencyMode() == TransparencyMode.opaque);
 
-    reAttachSplashScreen = new BifrostSnapshotSplashScreen(flutterEngine);
+      flutterView.detachFromFlutterEngine();
+      flutterView.removeOnFirstFrameRenderedListener(flutterUiDisplayListener);
 
-    flutterView.detachFromFlutterEngine();
-    flutterView.removeOnFirstFrameRenderedListener(flutterUiDisplayListener);
+      flutterEngine.getLifecycleChannel().appIsInactive();
 
-    flutterEngine.getLifecycleChannel().appIsInactive();
+      reattachView = reAttachSplashScreen.createSplashView(getAppComponent(), null);
 
-    reattachView = reAttachSplashScreen.createSplashView(getAppComponent(), null);
+      flutterSplashView.addView(reattachView);
+      flutterSplashView.removeView(flutterView);
+    } finally {
+      BifrostTrace.endSection(traced);
+    }
+  }
 
-    flutterSplashView.addView(reattachView);
-    flutterSplashView.removeView(flutterView);
+  // bifrost implementation
+  private boolean beginTrace(String section) {
+    return BifrostTrace.isEnabled()
+        && BifrostTrace.beginSection(section + " " + host.getTraceName());
   }
 
   // bifrost implementation
@@ -179,29 +201,34 @@ import java.util.Arrays;
       return;
     }
 
-    Log.w(TAG, "reattach " + flutterView.toString());
+    final boolean traced = beginTrace("Bifrost.reattach");
+    try {
+      BifrostLogger.v(TAG, "reattach()");
+      BifrostLogger.event(BifrostLogger.EVENT_REATTACH, host.getBifrostPageId());
 
-    flutterSplashView.displayFlutterViewWithSplash(flutterView, reAttachSplashScreen);
+      // the snapshot stays above the flutter view until it renders its first frame
+      flutterSplashView.displayFlutterViewWithSplash(flutterView, null);
+      if (reattachView != null) {
+        reattachView.bringToFront();
+      }
 
-    onAttach(host.getContext());
+      // the engine may have been reclaimed while detached, ask the host for it again
+      flutterEngine = null;
+      onAttach(host.getContext());
 
-    flutterView.addOnFirstFrameRenderedListener(flutterUiDisplayListener);
-    flutterView.attachToFlutterEngine(flutterEngine);
+      flutterView.addOnFirstFrameRenderedListener(flutterUiDisplayListener);
+      if (reattachView != null && reAttachSplashScreen != null) {
+        reAttachSplashScreen.removeOnFirstFrame(flutterSplashView, reattachView, flutterView);
+      }
+      reattachView = null;
+      reAttachSplashScreen = null;
+      flutterView.attachToFlutterEngine(flutterEngine);
 
-    flutterEngine.getLifecycleChannel().appIsResumed();
+      flutterEngine.getLifecycleChannel().appIsResumed();
 
-    isDetached = false;
-
-    if (reattachView != null) {
-      new Handler()
-          .postDelayed(
-              new Runnable() {
-                @Override
-                public void run() {
-                  flutterSplashView.removeView(reattachView);
-                }
-              },
-              1000);
+      isDetached = false;
+    } finally {
+      BifrostTrace.endSection(traced);
     }
   }
 
@@ -240,44 +267,51 @@ import java.util.Arrays;
    * </ol>
    */
   void onAttach(@NonNull Context context) {
-    ensureAlive();
-
-    // When "retain instance" is true, the FlutterEngine will survive configuration
-    // changes. Therefore, we create a new one only if one does not already exist.
-    if (flutterEngine == null) {
-      setupFlutterEngine();
-    }
+    final boolean traced = beginTrace("Bifrost.onAttach");
+    try {
+      BifrostLogger.event(BifrostLogger.EVENT_ATTACH, host.getBifrostPageId());
+      ensureAlive();
 
-    // Regardless of whether or not a FlutterEngine already existed, the PlatformPlugin
-    // is bound to a specific Activity. Therefore, it needs to be created and configured
-    // every time this Fragment attaches to a new Activity.
-    // TODO(mattcarroll): the PlatformPlugin needs to be reimagined because it implicitly takes
-    //                    control of the entire window. This is unacceptable for non-fullscreen
-    //                    use-cases.
-    platformPlugin = host.providePlatformPlugin(host.getActivity(), flutterEngine);
+      // When "retain instance" is true, the FlutterEngine will survive configuration
+      // changes. Therefore, we create a new one only if one does not already exist.
+      if (flutterEngine == null) {
+        setupFlutterEngine();
+      }
 
-    if (host.shouldAttachEngineToActivity()) {
-      // Notify any plugins that are currently attached to our FlutterEngine that they
-      // are now attached to an Activity.
-      //
-      // Passing this Fragment's Lifecycle should be sufficient because as long as this Fragment
-      // is attached to its Activity, the lifecycles should be in sync. Once this Fragment is
-      // detached from its Activity, that Activity will be detached from the FlutterEngine, too,
-      // which means there shouldn't be any possibility for the Fragment Lifecycle to get out of
-      // sync with the Activity. We use the Fragment's Lifecycle because it is possible that the
-      // attached Activity is not a LifecycleOwner.
-      Log.v(TAG, "Attaching FlutterEngine to the Activity that owns this Fragment.");
-      flutterEngine
-          .getActivityControlSurface()
-          .attachToActivity(host.getActivity(), host.getLifecycle());
-      // bifrost implementation
-      if (currentHost != null && currentHost != host) {
-        currentHost.detachFromFlutterEngine();
+      // Regardless of whether or not a FlutterEngine already existed, the PlatformPlugin
+      // is bound to a specific Activity. Therefore, it needs to be created and configured
+      // every time this Fragment attaches to a new Activity.
+      // TODO(mattcarroll): the PlatformPlugin needs to be reimagined because it implicitly takes
+      //                    control of the entire window. This is unacceptable for non-fullscreen
+      //                    use-cases.
+      platformPlugin = host.providePlatformPlugin(host.getActivity(), flutterEngine);
+
+      if (host.shouldAttachEngineToActivity()) {
+        // Notify any plugins that are currently attached to our FlutterEngine that they
+        // are now attached to an Activity.
+        //
+        // Passing this Fragment's Lifecycle should be sufficient because as long as this Fragment
+        // is attached to its Activity, the lifecycles should be in sync. Once this Fragment is
+        // detached from its Activity, that Activity will be detached from the FlutterEngine, too,
+        // which means there shouldn't be any possibility for the Fragment Lifecycle to get out of
+        // sync with the Activity. We use the Fragment's Lifecycle because it is possible that the
+        // attached Activity is not a LifecycleOwner.
+        BifrostLogger.v(TAG, "Attaching FlutterEngine to the Activity that owns this Fragment.");
+        flutterEngine
+            .getActivityControlSurface()
+            .attachToActivity(host.getActivity(), host.getLifecycle());
+        // bifrost implementation
+        Host currentHost = currentHosts.get(flutterEngine);
+        if (currentHost != null && currentHost != host) {
+          currentHost.detachFromFlutterEngine();
+        }
+        currentHosts.put(flutterEngine, host);
       }
-      currentHost = host;
-    }
 
-    host.configureFlutterEngine(flutterEngine);
+      host.configureFlutterEngine(flutterEngine);
+    } finally {
+      BifrostTrace.endSection(traced);
+    }
   }
 
   // bifrost implementation
@@ -307,7 +341,7 @@ import java.util.Arrays;
    */
   @VisibleForTesting
   /* package */ void setupFlutterEngine() {
-    Log.v(TAG, "Setting up FlutterEngine.");
+    BifrostLogger.v(TAG, "Setting up FlutterEngine.");
 
     // First, check if the host wants to use a cached FlutterEngine.
     String cachedEngineId = host.getCachedEngineId();
@@ -332,7 +366,7 @@ import java.util.Arrays;
 
     // Our host did not provide a custom FlutterEngine. Create a FlutterEngine to back our
     // FlutterView.
-    Log.v(
+    BifrostLogger.v(
         TAG,
         "No preferred FlutterEngine was provided. Creating a new FlutterEngine for"
             + " this CustomFlutterFragment.");
@@ -363,53 +397,59 @@ import java.util.Arrays;
   @NonNull
   View onCreateView(
       LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
-    Log.v(TAG, "Creating FlutterView.");
-    ensureAlive();
-
-    if (host.getRenderMode() == RenderMode.surface) {
-      FlutterSurfaceView flutterSurfaceView =
-          new FlutterSurfaceView(
-              host.getActivity(), host.getTransparencyMode() == TransparencyMode.transparent);
-
-      // Allow our host to customize FlutterSurfaceView, if desired.
-      host.onFlutterSurfaceViewCreated(flutterSurfaceView);
-
-      // Create the FlutterView that owns the FlutterSurfaceView.
-      flutterView = new FlutterView(host.getActivity(), flutterSurfaceView);
-    } else {
-      FlutterTextureView flutterTextureView = new FlutterTextureView(host.getActivity());
+    final boolean traced = beginTrace("Bifrost.onCreateView");
+    try {
+      BifrostLogger.v(TAG, "Creating FlutterView.");
+      BifrostLogger.event(BifrostLogger.EVENT_CREATE_VIEW, host.getBifrostPageId());
+      ensureAlive();
+
+      if (host.getRenderMode() == RenderMode.surface) {
+        FlutterSurfaceView flutterSurfaceView =
+            new FlutterSurfaceView(
+                host.getActivity(), host.getTransparencyMode() == TransparencyMode.transparent);
+
+        // Allow our host to customize FlutterSurfaceView, if desired.
+        host.onFlutterSurfaceViewCreated(flutterSurfaceView);
+
+        // Create the FlutterView that owns the FlutterSurfaceView.
+        flutterView = new FlutterView(host.getActivity(), flutterSurfaceView);
+      } else {
+        FlutterTextureView flutterTextureView = new FlutterTextureView(host.getActivity());
 
-      // Allow our host to customize FlutterSurfaceView, if desired.
-      host.onFlutterTextureViewCreated(flutterTextureView);
+        // Allow our host to customize FlutterSurfaceView, if desired.
+        host.onFlutterTextureViewCreated(flutterTextureView);
 
-      // Create the FlutterView that owns the FlutterTextureView.
-      flutterView = new FlutterView(host.getActivity(), flutterTextureView);
-    }
+        // Create the FlutterView that owns the FlutterTextureView.
+        flutterView = new FlutterView(host.getActivity(), flutterTextureView);
+      }
 
-    // Add listener to be notified when Flutter renders its first frame.
-    flutterView.addOnFirstFrameRenderedListener(flutterUiDisplayListener);
+      // Add listener to be notified when Flutter renders its first frame.
+      flutterView.addOnFirstFrameRenderedListener(flutterUiDisplayListener);
 
-    flutterSplashView = new FlutterSplashView(host.getContext());
-    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
-      flutterSplashView.setId(View.generateViewId());
+      flutterSplashView = new FlutterSplashView(host.getContext());
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+        flutterSplashView.setId(View.generateViewId());
+      }
+      // bifrost implementation
+      // } else {
+      //   // TODO(mattcarroll): Find a better solution to this ID. This is a random, static ID.
+      //   // It might conflict with other Views, and it means that only a single FlutterSplashView
+      //   // can exist in a View hierarchy at one time.
+      //   flutterSplashView.setId(486947586);
+      // }
+      flutterSplashView.displayFlutterViewWithSplash(flutterView, host.provideSplashScreen());
+
+      BifrostLogger.v(TAG, "Attaching FlutterEngine to FlutterView.");
+      flutterView.attachToFlutterEngine(flutterEngine);
+
+      return flutterSplashView;
+    } finally {
+      BifrostTrace.endSection(traced);
     }
-    // bifrost implementation
-    // } else {
-    //   // TODO(mattcarroll): Find a better solution to this ID. This is a random, static ID.
-    //   // It might conflict with other Views, and it means that only a single FlutterSplashView
-    //   // can exist in a View hierarchy at one time.
-    //   flutterSplashView.setId(486947586);
-    // }
-    flutterSplashView.displayFlutterViewWithSplash(flutterView, host.provideSplashScreen());
-
-    Log.v(TAG, "Attaching FlutterEngine to FlutterView.");
-    flutterView.attachToFlutterEngine(flutterEngine);
-
-    return flutterSplashView;
   }
 
   void onActivityCreated(@Nullable Bundle bundle) {
-    Log.v(TAG, "onActivityCreated. Giving framework and plugins an opportunity to restore state.");
+    BifrostLogger.v(TAG, "onActivityCreated. Giving framework and plugins an opportunity to restore state.");
     ensureAlive();
 
     Bundle pluginState = null;
@@ -440,7 +480,8 @@ import java.util.Arrays;
    * </ol>
    */
   void onStart() {
-    Log.v(TAG, "onStart()");
+    BifrostLogger.v(TAG, "onStart()");
+    BifrostLogger.event(BifrostLogger.EVENT_START, host.getBifrostPageId());
     ensureAlive();
     doInitialFlutterViewRun();
   }
@@ -466,12 +507,14 @@ import java.util.Arrays;
       return;
     }
 
-    Log.v(
-        TAG,
-        "Executing Dart entrypoint: "
-            + host.getDartEntrypointFunctionName()
-            + ", and sending initial route: "
-            + host.getInitialRoute());
+    if (BifrostLogger.isLoggable(BifrostLogger.VERBOSE)) {
+      BifrostLogger.v(
+          TAG,
+          "Executing Dart entrypoint: "
+              + host.getDartEntrypointFunctionName()
+              + ", and sending initial route: "
+              + host.getInitialRoute());
+    }
 
     // The engine needs to receive the Flutter app's initial route before executing any
     // Dart code to ensure that the initial route arrives in time to be applied.
@@ -498,7 +541,8 @@ import java.util.Arrays;
    * lifecycle.
    */
   void onResume() {
-    Log.v(TAG, "onResume()");
+    BifrostLogger.v(TAG, "onResume()");
+    BifrostLogger.event(BifrostLogger.EVENT_RESUME, host.getBifrostPageId());
     ensureAlive();
     flutterEngine.getLifecycleChannel().appIsResumed();
   }
@@ -515,7 +559,7 @@ import java.util.Arrays;
   // TODO(mattcarroll): determine why this can't be in onResume(). Comment reason, or move if
   // possible.
   void onPostResume() {
-    Log.v(TAG, "onPostResume()");
+    BifrostLogger.v(TAG, "onPostResume()");
     ensureAlive();
     if (flutterEngine != null) {
       if (platformPlugin != null) {
@@ -527,7 +571,7 @@ import java.util.Arrays;
         platformPlugin.updateSystemUiOverlays();
       }
     } else {
-      Log.w(TAG, "onPostResume() invoked before CustomFlutterFragment was attached to an Activity.");
+      BifrostLogger.w(TAG, "onPostResume() invoked before CustomFlutterFragment was attached to an Activity.");
     }
   }
 
@@ -538,7 +582,8 @@ import java.util.Arrays;
    * lifecycle.
    */
   void onPause() {
-    Log.v(TAG, "onPause()");
+    BifrostLogger.v(TAG, "onPause()");
+    BifrostLogger.event(BifrostLogger.EVENT_PAUSE, host.getBifrostPageId());
     ensureAlive();
     flutterEngine.getLifecycleChannel().appIsInactive();
   }
@@ -557,7 +602,8 @@ import java.util.Arrays;
    * </ol>
    */
   void onStop() {
-    Log.v(TAG, "onStop()");
+    BifrostLogger.v(TAG, "onStop()");
+    BifrostLogger.event(BifrostLogger.EVENT_STOP, host.getBifrostPageId());
     ensureAlive();
     flutterEngine.getLifecycleChannel().appIsPaused();
   }
@@ -568,7 +614,8 @@ import java.util.Arrays;
    * <p>This method removes this delegate's {@link FlutterView}'s {@link FlutterUiDisplayListener}.
    */
   void onDestroyView() {
-    Log.v(TAG, "onDestroyView()");
+    BifrostLogger.v(TAG, "onDestroyView()");
+    BifrostLogger.event(BifrostLogger.EVENT_DESTROY_VIEW, host.getBifrostPageId());
     ensureAlive();
 
     flutterView.detachFromFlutterEngine();
@@ -576,7 +623,7 @@ import java.util.Arrays;
   }
 
   void onSaveInstanceState(@Nullable Bundle bundle) {
-    Log.v(TAG, "onSaveInstanceState. Giving framework and plugins an opportunity to save state.");
+    BifrostLogger.v(TAG, "onSaveInstanceState. Giving framework and plugins an opportunity to save state.");
     ensureAlive();
 
     if (host.shouldRestoreAndSaveState()) {
@@ -608,7 +655,8 @@ import java.util.Arrays;
    * </ol>
    */
   void onDetach() {
-    Log.v(TAG, "onDetach()");
+    BifrostLogger.v(TAG, "onDetach()");
+    BifrostLogger.event(BifrostLogger.EVENT_DETACH_HOST, host.getBifrostPageId());
     ensureAlive();
 
     // Give the host an opportunity to cleanup any references that were created in
@@ -617,7 +665,7 @@ import java.util.Arrays;
 
     if (host.shouldAttachEngineToActivity()) {
       // Notify plugins that they are no longer attached to an Activity.
-      Log.v(TAG, "Detaching FlutterEngine from the Activity that owns this Fragment.");
+      BifrostLogger.v(TAG, "Detaching FlutterEngine from the Activity that owns this Fragment.");
       if (host.getActivity().isChangingConfigurations()) {
         flutterEngine.getActivityControlSurface().detachFromActivityForConfigChanges();
       } else {
@@ -635,6 +683,13 @@ import java.util.Arrays;
 
     flutterEngine.getLifecycleChannel().appIsDetached();
 
+    // bifrost implementation
+    currentHosts.values().removeAll(Collections.singleton(host));
+    if (reAttachSplashScreen != null) {
+      reAttachSplashScreen.release();
+      reAttachSplashScreen = null;
+    }
+
     // Destroy our FlutterEngine if we're not set to retain it.
     if (host.shouldDestroyEngineWithHost()) {
       flutterEngine.destroy();
@@ -658,10 +713,10 @@ import java.util.Arrays;
   void onBackPressed() {
     ensureAlive();
     if (flutterEngine != null) {
-      Log.v(TAG, "Forwarding onBackPressed() to FlutterEngine.");
+      BifrostLogger.v(TAG, "Forwarding onBackPressed() to FlutterEngine.");
       flutterEngine.getNavigationChannel().popRoute();
     } else {
-      Log.w(TAG, "Invoked onBackPressed() before CustomFlutterFragment was attached to an Activity.");
+      BifrostLogger.w(TAG, "Invoked onBackPressed() before CustomFlutterFragment was attached to an Activity.");
     }
   }
 
@@ -675,22 +730,24 @@ import java.util.Arrays;
       int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
     ensureAlive();
     if (flutterEngine != null) {
-      Log.v(
-          TAG,
-          "Forwarding onRequestPermissionsResult() to FlutterEngine:\n"
-              + "requestCode: "
-              + requestCode
-              + "\n"
-              + "permissions: "
-              + Arrays.toString(permissions)
-              + "\n"
-              + "grantResults: "
-              + Arrays.toString(grantResults));
+      if (BifrostLogger.isLoggable(BifrostLogger.VERBOSE)) {
+        BifrostLogger.v(
+            TAG,
+            "Forwarding onRequestPermissionsResult() to FlutterEngine:\n"
+                + "requestCode: "
+                + requestCode
+                + "\n"
+                + "permissions: "
+                + Arrays.toString(permissions)
+                + "\n"
+                + "grantResults: "
+                + Arrays.toString(grantResults));
+      }
       flutterEngine
           .getActivityControlSurface()
           .onRequestPermissionsResult(requestCode, permissions, grantResults);
     } else {
-      Log.w(
+      BifrostLogger.w(
           TAG,
           "onRequestPermissionResult() invoked before CustomFlutterFragment was attached to an Activity.");
     }
@@ -707,10 +764,10 @@ import java.util.Arrays;
   void onNewIntent(@NonNull Intent intent) {
     ensureAlive();
     if (flutterEngine != null) {
-      Log.v(TAG, "Forwarding onNewIntent() to FlutterEngine.");
+      BifrostLogger.v(TAG, "Forwarding onNewIntent() to FlutterEngine.");
       flutterEngine.getActivityControlSurface().onNewIntent(intent);
     } else {
-      Log.w(TAG, "onNewIntent() invoked before CustomFlutterFragment was attached to an Activity.");
+      BifrostLogger.w(TAG, "onNewIntent() invoked before CustomFlutterFragment was attached to an Activity.");
     }
   }
 
@@ -723,20 +780,22 @@ import java.util.Arrays;
   void onActivityResult(int requestCode, int resultCode, Intent data) {
     ensureAlive();
     if (flutterEngine != null) {
-      Log.v(
-          TAG,
-          "Forwarding onActivityResult() to FlutterEngine:\n"
-              + "requestCode: "
-              + requestCode
-              + "\n"
-              + "resultCode: "
-              + resultCode
-              + "\n"
-              + "data: "
-              + data);
+      if (BifrostLogger.isLoggable(BifrostLogger.VERBOSE)) {
+        BifrostLogger.v(
+            TAG,
+            "Forwarding onActivityResult() to FlutterEngine:\n"
+                + "requestCode: "
+                + requestCode
+                + "\n"
+                + "resultCode: "
+                + resultCode
+                + "\n"
+                + "data: "
+                + data);
+      }
       flutterEngine.getActivityControlSurface().onActivityResult(requestCode, resultCode, data);
     } else {
-      Log.w(TAG, "onActivityResult() invoked before CustomFlutterFragment was attached to an Activity.");
+      BifrostLogger.w(TAG, "onActivityResult() invoked before CustomFlutterFragment was attached to an Activity.");
     }
   }
 
@@ -751,10 +810,10 @@ import java.util.Arrays;
   void onUserLeaveHint() {
     ensureAlive();
     if (flutterEngine != null) {
-      Log.v(TAG, "Forwarding onUserLeaveHint() to FlutterEngine.");
+      BifrostLogger.v(TAG, "Forwarding onUserLeaveHint() to FlutterEngine.");
       flutterEngine.getActivityControlSurface().onUserLeaveHint();
     } else {
-      Log.w(TAG, "onUserLeaveHint() invoked before CustomFlutterFragment was attached to an Activity.");
+      BifrostLogger.w(TAG, "onUserLeaveHint() invoked before CustomFlutterFragment was attached to an Activity.");
     }
   }
 
@@ -775,11 +834,13 @@ import java.util.Arrays;
       // Use a trim level delivered while the application is running so the
       // framework has a chance to react to the notification.
       if (level == TRIM_MEMORY_RUNNING_LOW) {
-        Log.v(TAG, "Forwarding onTrimMemory() to FlutterEngine. Level: " + level);
+        if (BifrostLogger.isLoggable(BifrostLogger.VERBOSE)) {
+          BifrostLogger.v(TAG, "Forwarding onTrimMemory() to FlutterEngine. Level: " + level);
+        }
         flutterEngine.getSystemChannel().sendMemoryPressureWarning();
       }
     } else {
-      Log.w(TAG, "onTrimMemory() invoked before CustomFlutterFragment was attached to an Activity.");
+      BifrostLogger.w(TAG, "onTrimMemory() invoked before CustomFlutterFragment was attached to an Activity.");
     }
   }
 
@@ -792,7 +853,7 @@ import java.util.Arrays;
    * <p>This method sends a "memory pressure warning" message to Flutter over the "system channel".
    */
   void onLowMemory() {
-    Log.v(TAG, "Forwarding onLowMemory() to FlutterEngine.");
+    BifrostLogger.v(TAG, "Forwarding onLowMemory() to FlutterEngine.");
     ensureAlive();
     flutterEngine.getDartExecutor().notifyLowMemoryWarning();
     flutterEngine.getSystemChannel().sendMemoryPressureWarning();
@@ -966,5 +1027,14 @@ import java.util.Arrays;
 
     // bifrost implementation
     boolean stillAttachedForEvent(String event);
+
+    // bifrost implementation
+    /** Returns the name of the page in the trace sections of the delegate. */
+    @NonNull
+    String getTraceName();
+
+    // bifrost implementation
+    /** Returns the id of the page in the lifecycle events of the delegate, or 0 if it has none. */
+    int getBifrostPageId();
   }
 }
@@ -20,7 +20,7 @@ import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
 import androidx.lifecycle.Lifecycle;
 
-import io.flutter.Log;
+import br.com.dextra.bifrost.BifrostLogger;
 import io.flutter.embedding.engine.FlutterEngine;
 import io.flutter.embedding.engine.FlutterEngineCache;
 import io.flutter.embedding.engine.FlutterShellArgs;
@@ -672,20 +672,35 @@ public class CustomFlutterFragment extends Fragment implements CustomFlutterActi
     }
   }
 
+  // bifrost implementation
+  @NonNull
+  @Override
+  public String getTraceName() {
+    return getClass().getSimpleName();
+  }
+
+  // bifrost implementation
+  @Override
+  public int getBifrostPageId() {
+    return 0;
+  }
+
   // bifrost implementation
   @Override
   public void detachFromFlutterEngine() {
     if (delegate != null) {
-      Log.v(
-          TAG,
-          "CustomFlutterFragment "
-              + this
-              + " connection to the engine "
-              + getFlutterEngine()
-              + " evicted by another attaching activity");
+      if (BifrostLogger.isLoggable(BifrostLogger.VERBOSE)) {
+        BifrostLogger.v(
+            TAG,
+            "CustomFlutterFragment "
+                + this
+                + " connection to the engine "
+                + getFlutterEngine()
+                + " evicted by another attaching activity");
+      }
       delegate.detach();
     } else {
-      Log.w(TAG, "delegate has been released !!");
+      BifrostLogger.w(TAG, "delegate has been released !!");
     }
   }
 
@@ -968,7 +983,7 @@ public class CustomFlutterFragment extends Fragment implements CustomFlutterActi
     FragmentActivity attachedActivity = getActivity();
     if (attachedActivity instanceof FlutterEngineProvider) {
       // Defer to the Activity that owns us to provide a FlutterEngine.
-      Log.v(TAG, "Deferring to attached Activity to provide a FlutterEngine.");
+      BifrostLogger.v(TAG, "Deferring to attached Activity to provide a FlutterEngine.");
       FlutterEngineProvider flutterEngineProvider = (FlutterEngineProvider) attachedActivity;
       flutterEngine = flutterEngineProvider.provideFlutterEngine(getContext());
     }
@@ -1111,7 +1126,10 @@ public class CustomFlutterFragment extends Fragment implements CustomFlutterActi
   @Override
   public boolean stillAttachedForEvent(String event) {
     if (delegate.isDetached()) {
-      Log.v(TAG, "CustomFlutterFragment " + hashCode() + " " + event + " called after release.");
+      if (BifrostLogger.isLoggable(BifrostLogger.VERBOSE)) {
+        BifrostLogger.v(
+            TAG, "CustomFlutterFragment " + hashCode() + " " + event + " called after release.");
+      }
       return false;
     }
     return true;
@@ -0,0 +1,222 @@
+package br.com.dextra.bifrost
+
+import android.content.Context
+import android.os.Looper
+import androidx.fragment.app.FragmentActivity
+import androidx.test.core.app.ApplicationProvider
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Assert.fail
+import org.junit.Assume.assumeTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.Robolectric
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.android.controller.ActivityController
+import org.robolectric.annotation.Config
+import org.robolectric.annotation.LooperMode
+import java.io.File
+import java.lang.management.ManagementFactory
+import java.time.Duration
+import java.util.Properties
+
+/**
+ * Cost of switching the single engine between pages: a host attaching to the engine detaches the
+ * current one, which is reattached when it comes back. Each switch must send a single batched
+ * coordinator message and nothing on the other channels. The medians of every run are written to
+ * `build/reports/page-switch`. With `gradle test -PcheckAllocations=true` a switch may not allocate
+ * more than the baseline recorded by `gradle test -PrecordBaseline=true`, which is missing until
+ * recorded on the machine running the check.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [28])
+@LooperMode(LooperMode.Mode.PAUSED)
+class PageSwitchBenchmarkTest {
+
+  companion object {
+    private const val WARM_UP_SWITCHES = 10
+    private const val MEASURED_SWITCHES = 40
+    private const val COORDINATOR = "bifrost/coordinator"
+    private const val BASELINE_FILE = "page_switch_baseline.properties"
+
+    // measured allocations may exceed the baseline by this ratio, for the JIT and GC noise
+    private const val ALLOCATION_TOLERANCE = 1.10
+  }
+
+  private class Switch(val wallNanos: Long, val allocatedBytes: Long, val coordinatorMessages: Int,
+                       val otherMessages: Int)
+
+  private val context: Context = ApplicationProvider.getApplicationContext()
+  private val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+  private lateinit var standIn: StandInFlutterEngine
+
+  @Before
+  fun setUp() {
+    BifrostLogger.eventCapacity = 4 * (WARM_UP_SWITCHES + MEASURED_SWITCHES) * 16
+    BifrostTrace.tracer = BifrostTracer.NONE
+    standIn = StandInFlutterEngine()
+    Bifrost.startWithEngine(context, standIn.engine)
+  }
+
+  @After
+  fun tearDown() {
+    Bifrost.reset()
+  }
+
+  @Test
+  fun activityPushAndPop() {
+    val first = launch("/")
+    val firstId = first.get().intent.getIntExtra(BifrostConstants.ID, 0)
+    var second: ActivityController<BifrostFlutterActivity>? = null
+
+    val switches = measureSwitches { index ->
+      if (index % 2 == 0) {
+        first.pause()
+        second = launch("/details")
+        first.stop()
+      } else {
+        second!!.pause()
+        first.restart().resume()
+        second!!.stop().destroy()
+      }
+    }
+
+    val cycles = (WARM_UP_SWITCHES + MEASURED_SWITCHES) / 2
+    assertEquals(cycles, countEvents("detach", firstId))
+    assertEquals(cycles, countEvents("reattach", firstId))
+    verify("activityPushAndPop", switches)
+  }
+
+  @Test
+  fun fragmentHideAndShow() {
+    val activity = Robolectric.buildActivity(FragmentActivity::class.java).setup().get()
+    val first = BifrostFlutterFragment.newInstance<BifrostFlutterFragment>("/")
+    val second = BifrostFlutterFragment.newInstance<BifrostFlutterFragment>("/details")
+    activity.supportFragmentManager.beginTransaction()
+        .add(android.R.id.content, first)
+        .commitNow()
+    settle()
+    activity.supportFragmentManager.beginTransaction()
+        .add(android.R.id.content, second)
+        .hide(first)
+        .commitNow()
+    settle()
+    val firstId = first.arguments!!.getInt(BifrostConstants.ID)
+    val detachesBefore = countEvents("detach", firstId)
+
+    val switches = measureSwitches { index ->
+      val (shown, hidden) = if (index % 2 == 0) first to second else second to first
+      activity.supportFragmentManager.beginTransaction()
+          .hide(hidden)
+          .show(shown)
+          .commitNow()
+    }
+
+    val cycles = (WARM_UP_SWITCHES + MEASURED_SWITCHES) / 2
+    assertEquals(cycles, countEvents("detach", firstId) - detachesBefore)
+    assertEquals(cycles, countEvents("reattach", firstId))
+    verify("fragmentHideAndShow", switches)
+  }
+
+  private fun launch(route: String): ActivityController<BifrostFlutterActivity> {
+    val intent = BifrostFlutterActivity.createIntent(context, route)
+    return Robolectric.buildActivity(BifrostFlutterActivity::class.java, intent).setup()
+  }
+
+  /**
+   * run the [switch] with the frame that flushes its coordinator events, the snapshot removal
+   * and the animations are left out of the measurement
+   */
+  private fun measureSwitches(switch: (Int) -> Unit): List<Switch> {
+    settle()
+    val switches = arrayListOf<Switch>()
+    for (index in 0 until WARM_UP_SWITCHES + MEASURED_SWITCHES) {
+      standIn.clear()
+      val allocatedBefore = threads.getThreadAllocatedBytes(Thread.currentThread().id)
+      val startNanos = System.nanoTime()
+
+      switch(index)
+      frame()
+
+      val wallNanos = System.nanoTime() - startNanos
+      val allocated = threads.getThreadAllocatedBytes(Thread.currentThread().id) - allocatedBefore
+      settle()
+      val coordinatorMessages = standIn.messages(COORDINATOR)
+      val otherMessages = standIn.totalMessages() - coordinatorMessages
+      if (index >= WARM_UP_SWITCHES) {
+        switches.add(Switch(wallNanos, allocated, coordinatorMessages, otherMessages))
+      }
+    }
+    return switches
+  }
+
+  private fun frame() {
+    shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(17))
+  }
+
+  private fun settle() {
+    shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(3))
+  }
+
+  private fun countEvents(event: String, pageId: Int): Int {
+    return BifrostLogger.dump().lines().count {
+      val fields = it.split(' ')
+      fields.size == 3 && fields[1] == event && fields[2] == pageId.toString()
+    }
+  }
+
+  private fun verify(name: String, switches: List<Switch>) {
+    val wallMicros = median(switches.map { it.wallNanos }) / 1000
+    val allocatedBytes = median(switches.map { it.allocatedBytes })
+    writeReport(name, switches.size, wallMicros, allocatedBytes)
+
+    switches.forEachIndexed { index, switch ->
+      assertEquals("coordinator messages of switch $index", 1, switch.coordinatorMessages)
+      assertEquals("other channel messages of switch $index", 0, switch.otherMessages)
+    }
+
+    val baselineFile = File(System.getProperty("bifrost.baselineDir") ?: "src/test/resources",
+        BASELINE_FILE)
+    val baseline = Properties()
+    if (baselineFile.exists()) {
+      baselineFile.inputStream().use { baseline.load(it) }
+    }
+    if (System.getProperty("bifrost.recordBaseline") == "true") {
+      baseline.setProperty("$name.allocatedBytes", allocatedBytes.toString())
+      baselineFile.outputStream().use { baseline.store(it, "median allocations per page switch") }
+      return
+    }
+    if (System.getProperty("bifrost.checkAllocations") != "true") return
+
+    assumeTrue("Thread allocation counters are not supported by this JVM",
+        threads.isThreadAllocatedMemorySupported)
+    val recorded = baseline.getProperty("$name.allocatedBytes")?.toLong()
+    if (recorded == null) {
+      fail("No allocation baseline for $name in $baselineFile, record it with " +
+          "gradle test -PrecordBaseline=true")
+      return
+    }
+    assertTrue("$name allocates $allocatedBytes bytes per switch, the baseline is $recorded",
+        allocatedBytes <= recorded * ALLOCATION_TOLERANCE)
+  }
+
+  private fun writeReport(name: String, switches: Int, wallMicros: Long, allocatedBytes: Long) {
+    val directory = File(System.getProperty("bifrost.reportDir") ?: "build/reports/page-switch")
+    directory.mkdirs()
+    val report = Properties().apply {
+      setProperty("switches", switches.toString())
+      setProperty("medianWallMicros", wallMicros.toString())
+      setProperty("medianAllocatedBytes", allocatedBytes.toString())
+    }
+    File(directory, "$name.properties").outputStream().use {
+      report.store(it, "median cost of a page switch")
+    }
+  }
+
+  private fun median(values: List<Long>): Long {
+    return values.sorted()[values.size / 2]
+  }
+}
@@ -0,0 +1,62 @@
+package br.com.dextra.bifrost
+
+import android.graphics.Bitmap
+import io.flutter.embedding.engine.FlutterEngine
+import io.flutter.plugin.common.BinaryMessenger
+import org.mockito.Mockito
+import org.mockito.invocation.InvocationOnMock
+import java.nio.ByteBuffer
+
+/**
+ * Mocked [FlutterEngine] for the JVM tests. Dart is reported as running and the messages sent to
+ * it are counted by channel, no reply ever comes back.
+ */
+internal class StandInFlutterEngine {
+
+  val engine: FlutterEngine = Mockito.mock(FlutterEngine::class.java, Mockito.RETURNS_DEEP_STUBS)
+
+  private val messages = hashMapOf<String, Int>()
+
+  /**
+   * payload bytes of the messages sent to dart
+   */
+  var bytes = 0L
+    private set
+
+  init {
+    val executor = engine.dartExecutor
+    Mockito.`when`(executor.isExecutingDart).thenReturn(true)
+    // the snapshot pool recycles the captured bitmap, so every capture gets a new one
+    Mockito.`when`(engine.renderer.bitmap).thenAnswer {
+      Bitmap.createBitmap(108, 192, Bitmap.Config.ARGB_8888)
+    }
+    Mockito.doAnswer { record(it) }
+        .`when`(executor)
+        .send(Mockito.anyString(), Mockito.any<ByteBuffer>(),
+            Mockito.any<BinaryMessenger.BinaryReply>())
+    Mockito.doAnswer { record(it) }
+        .`when`(executor)
+        .send(Mockito.anyString(), Mockito.any<ByteBuffer>())
+  }
+
+  // outgoing buffers are not flipped, their position is the message size
+  private fun record(invocation: InvocationOnMock): Any? {
+    val channel = invocation.getArgument<String>(0)
+    messages[channel] = (messages[channel] ?: 0) + 1
+    bytes += invocation.getArgument<ByteBuffer?>(1)?.position() ?: 0
+    return null
+  }
+
+  fun messages(channel: String): Int {
+    return messages[channel] ?: 0
+  }
+
+  fun totalMessages(): Int {
+    return messages.values.sum()
+  }
+
+  fun clear() {
+    messages.clear()
+    bytes = 0
+  }
+}
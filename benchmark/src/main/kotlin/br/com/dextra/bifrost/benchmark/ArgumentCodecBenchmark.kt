@@ -0,0 +1,65 @@
+package br.com.dextra.bifrost.benchmark
+
+import br.com.dextra.bifrost.BifrostStandardArgumentCodec
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.io.ByteArrayInputStream
+import java.io.ObjectInputStream
+import java.util.concurrent.TimeUnit
+
+/**
+ * Encoding and decoding of the page arguments, the legacy java serialization against the
+ * StandardMessageCodec format written by [BifrostStandardArgumentCodec].
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class ArgumentCodecBenchmark {
+
+  @Param(ArgumentShapes.SMALL_MAP, ArgumentShapes.NESTED_LISTS, ArgumentShapes.TREE_100KB)
+  lateinit var shape: String
+
+  private val codec = BifrostStandardArgumentCodec()
+  private lateinit var arguments: Any
+  private lateinit var serialized: ByteArray
+  private lateinit var encoded: ByteArray
+
+  @Setup
+  fun setUp() {
+    arguments = ArgumentShapes.of(shape)
+    serialized = LegacyPageData.serializeObject(arguments)!!
+    encoded = codec.encode(arguments)
+  }
+
+  @Benchmark
+  fun legacySerializeObject(): ByteArray? {
+    return LegacyPageData.serializeObject(arguments)
+  }
+
+  @Benchmark
+  fun legacyDeserializeObject(): Any? {
+    return ObjectInputStream(ByteArrayInputStream(serialized)).use { it.readObject() }
+  }
+
+  @Benchmark
+  fun standardCodecEncode(): ByteArray {
+    return codec.encode(arguments)
+  }
+
+  @Benchmark
+  fun standardCodecDecode(): Any? {
+    return codec.decode(encoded)
+  }
+}
@@ -0,0 +1,60 @@
+package br.com.dextra.bifrost.benchmark
+
+/**
+ * Typical page arguments. Only serializable collections are used, so the legacy java
+ * serialization can encode them too.
+ */
+object ArgumentShapes {
+
+  const val SMALL_MAP = "smallMap"
+  const val NESTED_LISTS = "nestedLists"
+  const val TREE_100KB = "tree100kb"
+
+  fun of(shape: String): Any {
+    return when (shape) {
+      SMALL_MAP -> smallMap()
+      NESTED_LISTS -> nestedLists()
+      TREE_100KB -> tree(targetBytes = 100 * 1024)
+      else -> throw IllegalArgumentException("Unknown argument shape: $shape")
+    }
+  }
+
+  // a detail page opened from a list
+  private fun smallMap(): Any {
+    return hashMapOf<String, Any?>(
+        "id" to 42,
+        "title" to "Product details",
+        "price" to 19.9,
+        "available" to true,
+        "source" to null)
+  }
+
+  private fun nestedLists(): Any {
+    return arrayListOf(
+        arrayListOf(1, 2, 3, 4, 5, 6, 7, 8),
+        arrayListOf("a", "b", "c", "d"),
+        arrayListOf(arrayListOf(1.5, 2.5), arrayListOf(3.5, 4.5), arrayListOf<Double>()),
+        arrayListOf(true, false, null))
+  }
+
+  // json-like catalog, items are added until their strings and numbers reach [targetBytes]
+  private fun tree(targetBytes: Int): Any {
+    val items = arrayListOf<Any?>()
+    var bytes = 0
+    var i = 0
+    while (bytes < targetBytes) {
+      val name = "Item number $i"
+      val description = "Description of the item number $i in the catalog"
+      items.add(hashMapOf<String, Any?>(
+          "id" to i,
+          "name" to name,
+          "description" to description,
+          "price" to i * 1.25,
+          "tags" to arrayListOf("tag${i % 7}", "tag${i % 11}"),
+          "stock" to hashMapOf("available" to (i % 3 != 0), "count" to i % 100)))
+      bytes += name.length + description.length + 40
+      i++
+    }
+    return hashMapOf("version" to 1, "items" to items)
+  }
+}
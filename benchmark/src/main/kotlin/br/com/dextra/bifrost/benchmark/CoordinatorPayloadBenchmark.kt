@@ -0,0 +1,86 @@
+package br.com.dextra.bifrost.benchmark
+
+import br.com.dextra.bifrost.BifrostCoordinatorProtocol
+import br.com.dextra.bifrost.BifrostStandardArgumentCodec
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.nio.ByteBuffer
+import java.util.concurrent.TimeUnit
+
+/**
+ * Cost of the coordinator messages of a navigation. The legacy events built the page data map
+ * and encoded it in the StandardMessageCodec format on every event; the binary protocol sends
+ * the route and arguments once and only the header afterwards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class CoordinatorPayloadBenchmark {
+
+  // arguments larger than this are fetched by flutter, see BifrostCoordinatorChannel
+  private val inlineArgumentsLimit = 1024
+
+  @Param(ArgumentShapes.SMALL_MAP, ArgumentShapes.NESTED_LISTS, ArgumentShapes.TREE_100KB)
+  lateinit var shape: String
+
+  private val codec = BifrostStandardArgumentCodec()
+  private val route = "/catalog/details"
+  private val pageId = 7
+  private lateinit var serialized: ByteArray
+  private lateinit var encoded: ByteArray
+  private val payloads = arrayOfNulls<ByteBuffer>(4)
+  private val opcodes = byteArrayOf(
+      BifrostCoordinatorProtocol.CREATE_PAGE,
+      BifrostCoordinatorProtocol.SHOW_PAGE,
+      BifrostCoordinatorProtocol.SHOW_PAGE,
+      BifrostCoordinatorProtocol.DEALLOC_PAGE)
+  private val pageIds = intArrayOf(pageId, pageId, pageId - 1, pageId - 2)
+
+  @Setup
+  fun setUp() {
+    val arguments = ArgumentShapes.of(shape)
+    serialized = LegacyPageData.serializeObject(arguments)!!
+    encoded = codec.encode(arguments)
+  }
+
+  @Benchmark
+  fun legacyPageData(): HashMap<String, Any?> {
+    return LegacyPageData.pageData(pageId, route, serialized)
+  }
+
+  @Benchmark
+  fun legacyPageEvent(): ByteArray {
+    return codec.encode(LegacyPageData.pageData(pageId, route, serialized))
+  }
+
+  @Benchmark
+  fun createPage(): ByteBuffer {
+    val inlineArguments = encoded.takeIf { it.size <= inlineArgumentsLimit }
+    return BifrostCoordinatorProtocol.encode(
+        BifrostCoordinatorProtocol.CREATE_PAGE, pageId, route, 1L, inlineArguments)
+  }
+
+  @Benchmark
+  fun showPage(): ByteBuffer {
+    return BifrostCoordinatorProtocol.encode(BifrostCoordinatorProtocol.SHOW_PAGE, pageId)
+  }
+
+  // the events queued within one frame
+  @Benchmark
+  fun batch(): ByteBuffer {
+    payloads[0] = createPage()
+    return BifrostCoordinatorProtocol.encodeBatch(opcodes.size, opcodes, pageIds, payloads)
+  }
+}
@@ -0,0 +1,33 @@
+package br.com.dextra.bifrost.benchmark
+
+import java.io.ByteArrayOutputStream
+import java.io.ObjectOutputStream
+
+/**
+ * The page arguments and events as they were sent before the binary coordinator protocol and
+ * the argument codecs, kept as the baseline of the benchmarks.
+ */
+object LegacyPageData {
+
+  // java serialization of the page arguments, stored in the Intent or Bundle
+  fun serializeObject(obj: Any?): ByteArray? {
+    return try {
+      val bytesOut = ByteArrayOutputStream()
+      val oos = ObjectOutputStream(bytesOut)
+      oos.writeObject(obj)
+      oos.flush()
+      val bytes: ByteArray = bytesOut.toByteArray()
+      bytesOut.close()
+      oos.close()
+      bytes
+    } catch (e: Exception) {
+      e.printStackTrace()
+      null
+    }
+  }
+
+  // built on every page event, which sent it through a method channel
+  fun pageData(id: Int, route: String, arguments: ByteArray?): HashMap<String, Any?> {
+    return hashMapOf("id" to id, "route" to route, "arguments" to arguments)
+  }
+}
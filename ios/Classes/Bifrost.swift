@@ -108,19 +108,19 @@ extension Bifrost {
     
     /// create page with initial route
     ///
-    internal static func onCreatePage(_ data: BifrostPageData) {
-        Bifrost.default.coordinatorChannel.onCreatePage(data)
+    internal static func onCreatePage(_ id: Int, route: String, arguments: Any?) {
+        Bifrost.default.coordinatorChannel.onCreatePage(id, route: route, arguments: arguments)
     }
     
     /// show page by initial route
     ///
-    internal static func onShowPage(_ data: BifrostPageData) {
-        Bifrost.default.coordinatorChannel.onShowPage(data)
+    internal static func onShowPage(_ id: Int) {
+        Bifrost.default.coordinatorChannel.onShowPage(id)
     }
     
     /// remove page container by initial route
     ///
-    internal static func onDeallocPage(_ data: BifrostPageData) {
-        Bifrost.default.coordinatorChannel.onDeallocPage(data)
+    internal static func onDeallocPage(_ id: Int) {
+        Bifrost.default.coordinatorChannel.onDeallocPage(id)
     }
 }
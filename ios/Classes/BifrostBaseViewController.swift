@@ -18,8 +18,6 @@ internal class BifrostBaseViewController: FlutterViewController {
     
     private(set) var isShowing: Bool = false
     
-    private var pageData: BifrostPageData { ["id": pageId, "route": pageRoute, "arguments": pageArguments] }
-    
     init(pageRoute: String, pageArguments: Any? = nil, backgroundColor: UIColor = .white) {
         self.pageId = Bifrost.generatePageId()
         self.pageRoute = pageRoute
@@ -32,7 +30,7 @@ internal class BifrostBaseViewController: FlutterViewController {
         engine.viewController = nil
         super.init(engine: engine, nibName: nil, bundle: nil)
         isShowing = true
-        Bifrost.onCreatePage(pageData)
+        Bifrost.onCreatePage(pageId, route: pageRoute, arguments: pageArguments)
     }
     
     required public init(coder aDecoder: NSCoder) {
@@ -42,7 +40,7 @@ internal class BifrostBaseViewController: FlutterViewController {
     override func viewWillAppear(_ animated: Bool) {
         engine?.viewController = self
         isShowing = true
-        Bifrost.onShowPage(pageData)
+        Bifrost.onShowPage(pageId)
         
         super.viewWillAppear(animated)
         view.backgroundColor = backgroundColor
@@ -58,6 +56,6 @@ internal class BifrostBaseViewController: FlutterViewController {
     }
     
     deinit {
-        Bifrost.onDeallocPage(pageData)
+        Bifrost.onDeallocPage(pageId)
     }
 }
@@ -8,33 +8,79 @@
 import Flutter
 import Foundation
 
-internal typealias BifrostPageData = Dictionary<String, Any?>
+/// Messages start with the opcode (uint8) followed by the page id (int32), little endian.
+/// Only page creations carry the route as an int32 length plus its UTF-8 bytes and, starting at
+/// the next 8-byte aligned offset, an int64 handle that is always 0 on iOS followed by the
+/// arguments encoded with the standard message codec.
+internal enum BifrostOpcode: UInt8 {
+    case createPage = 1
+    case showPage = 2
+    case deallocPage = 3
+    case backPressed = 4
+    case setCanPop = 5
+    case popViewController = 6
+}
 
 internal class BifrostCoordinatorChannel {
     
-    private var channel: FlutterMethodChannel!
+    private var channel: FlutterBasicMessageChannel!
     
     init(_ messenger: FlutterBinaryMessenger) {
-        channel = FlutterMethodChannel(name: "bifrost/coordinator", binaryMessenger: messenger)
+        channel = FlutterBasicMessageChannel(
+            name: "bifrost/coordinator",
+            binaryMessenger: messenger,
+            codec: FlutterBinaryCodec.sharedInstance()
+        )
         channel.resizeBuffer(2)
-        channel.setMethodCallHandler(handle(_:result:))
+        channel.setMessageHandler(handle(_:reply:))
     }
     
-    func onCreatePage(_ data: BifrostPageData) {
-        channel.invokeMethod("onCreatePage", arguments: data)
+    func onCreatePage(_ id: Int, route: String, arguments: Any?) {
+        channel.sendMessage(encode(.createPage, id, route: route, arguments: arguments))
     }
 
-    func onShowPage(_ data: BifrostPageData) {
-        channel.invokeMethod("onShowPage", arguments: data)
+    func onShowPage(_ id: Int) {
+        channel.sendMessage(encode(.showPage, id))
     }
 
-    func onDeallocPage(_ data: BifrostPageData) {
-        channel.invokeMethod("onDeallocPage", arguments: data)
+    func onDeallocPage(_ id: Int) {
+        channel.sendMessage(encode(.deallocPage, id))
+    }
+    
+    private func encode(_ opcode: BifrostOpcode, _ id: Int, route: String? = nil, arguments: Any? = nil) -> Data {
+        var data = Data(capacity: 16)
+        data.append(opcode.rawValue)
+        append(Int32(truncatingIfNeeded: id), to: &data)
+        
+        guard let route = route else { return data }
+        let routeBytes = Data(route.utf8)
+        append(Int32(routeBytes.count), to: &data)
+        data.append(routeBytes)
+        
+        guard let arguments = arguments,
+              let encoded = FlutterStandardMessageCodec.sharedInstance().encode(arguments) else { return data }
+        // typed lists are decoded in place, so the arguments must start 8-byte aligned
+        while data.count % 8 != 0 {
+            data.append(0)
+        }
+        // arguments are always sent inline, so there is no handle to fetch them
+        data.append(contentsOf: [UInt8](repeating: 0, count: 8))
+        data.append(encoded)
+        return data
     }
     
-    private func handle(_ call: FlutterMethodCall, result: @escaping FlutterResult) {
-        if call.method == "popViewController" {
+    private func append(_ value: Int32, to data: inout Data) {
+        var littleEndian = value.littleEndian
+        withUnsafeBytes(of: &littleEndian) { data.append(contentsOf: $0) }
+    }
+    
+    private func handle(_ message: Any?, reply: @escaping FlutterReply) {
+        guard let data = message as? Data, let opcode = data.first else {
+            reply(nil); return
+        }
+        if opcode == BifrostOpcode.popViewController.rawValue {
             Bifrost.popViewController()
         }
+        reply(nil)
     }
 }
@@ -1,2 +1,4 @@
 export 'src/bifrost.dart';
 export 'src/bifrost_channels.dart';
+export 'src/bifrost_metrics.dart';
+export 'src/log.dart' show BifrostLog, BifrostLogEntry;
@@ -5,11 +5,19 @@ import 'bifrost_manager.dart';
 class Bifrost {
   const Bifrost._();
 
-  static TransitionBuilder init({TransitionBuilder? builder}) {
+  /// [maxLiveContainers] bounds the number of native pages whose flutter
+  /// navigator stays mounted, see [BifrostManager.maxLiveContainers].
+  static TransitionBuilder init({
+    TransitionBuilder? builder,
+    int? maxLiveContainers,
+  }) {
     return (BuildContext context, Widget? child) {
       assert(child is Navigator, 'child must be Navigator, what is wrong?');
 
-      final manager = BifrostManager(child as Navigator);
+      final manager = BifrostManager(
+        child as Navigator,
+        maxLiveContainers: maxLiveContainers,
+      );
       final content = HeroControllerScope.none(child: manager);
 
       return builder?.call(context, content) ?? content;
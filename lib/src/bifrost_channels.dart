@@ -1,10 +1,12 @@
 import 'package:flutter/services.dart';
 
+import 'bifrost_metrics.dart';
+
 class BifrostChannels {
   BifrostChannels._();
 
-  static const MethodChannel common = MethodChannel('bifrost/common');
+  static const MethodChannel common = BifrostMethodChannel('bifrost/common');
 
   static const MethodChannel notification =
-      MethodChannel('bifrost/notification');
+      BifrostMethodChannel('bifrost/notification');
 }
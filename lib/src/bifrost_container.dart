@@ -14,6 +14,8 @@ class BifrostContainer extends Navigator {
   const BifrostContainer({
     GlobalKey<BifrostContainerState>? key,
     String? initialRoute,
+    RouteListFactory onGenerateInitialRoutes =
+        Navigator.defaultGenerateInitialRoutes,
     RouteFactory? onGenerateRoute,
     RouteFactory? onUnknownRoute,
     List<NavigatorObserver>? observers,
@@ -21,19 +23,40 @@ class BifrostContainer extends Navigator {
   }) : super(
           key: key,
           initialRoute: initialRoute,
+          onGenerateInitialRoutes: onGenerateInitialRoutes,
           onGenerateRoute: onGenerateRoute,
           onUnknownRoute: onUnknownRoute,
           observers: observers ?? const [],
         );
 
+  /// [restoredRoutes] rebuilds the route stack of a container that was
+  /// evicted, see [BifrostManager.maxLiveContainers]
   factory BifrostContainer.obtain(
     Navigator initialNavigator,
-    BifrostSettings bifrostSettings,
-  ) =>
+    BifrostSettings bifrostSettings, {
+    List<RouteSettings>? restoredRoutes,
+  }) =>
       BifrostContainer(
         key: GlobalKey<BifrostContainerState>(),
         initialRoute: bifrostSettings.route,
         settings: bifrostSettings,
+        onGenerateInitialRoutes: restoredRoutes == null
+            ? Navigator.defaultGenerateInitialRoutes
+            : (NavigatorState navigator, String initialRoute) {
+                final routes = <Route<dynamic>>[];
+                for (final routeSettings in restoredRoutes) {
+                  final route =
+                      initialNavigator.onGenerateRoute?.call(routeSettings);
+                  if (route == null) {
+                    break;
+                  }
+                  routes.add(route);
+                }
+                return routes.isNotEmpty
+                    ? routes
+                    : Navigator.defaultGenerateInitialRoutes(
+                        navigator, initialRoute);
+              },
         onGenerateRoute: (RouteSettings routeSettings) {
           // this is necessary so that the initial navigator does not replace
           // your custom initial route
@@ -64,8 +87,10 @@ class BifrostContainer extends Navigator {
           container.key as GlobalKey<BifrostContainerState>;
       return globalKey.currentState;
     }
-    log('key of BifrostContainer must be GlobalKey<BifrostContainerState>',
-        level: Level.WARNING);
+    log(
+      () => 'key of BifrostContainer must be GlobalKey<BifrostContainerState>',
+      level: Level.WARNING,
+    );
     return null;
   }
 
@@ -94,9 +119,15 @@ class BifrostContainerState extends NavigatorState {
     if (canPop()) {
       super.pop<T>(result);
     } else {
-      if (Platform.isIOS) {
-        BifrostManager.of(context)?.popViewController();
-      } else {
+      final manager = BifrostManager.of(context);
+      if (manager != null) {
+        // no live host was found, so leave the app like on the root route
+        manager.popViewController(settings.id).then((popped) {
+          if (!popped) {
+            SystemNavigator.pop();
+          }
+        });
+      } else if (!Platform.isIOS) {
         SystemNavigator.pop();
       }
     }
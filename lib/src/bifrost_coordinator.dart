@@ -1,54 +1,392 @@
+import 'dart:convert';
+import 'dart:developer' show Timeline, TimelineTask;
+import 'dart:io';
+import 'dart:typed_data';
+
+import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 
 import 'bifrost_manager.dart';
+import 'bifrost_metrics.dart';
 import 'log.dart';
 
-const _channel = MethodChannel('bifrost/coordinator');
+const _channel = BasicMessageChannel<ByteData?>(
+  'bifrost/coordinator',
+  BinaryCodec(),
+);
+
+/// Opcodes of the binary messages exchanged on the coordinator channel.
+///
+/// Every message starts with the opcode (uint8) followed by the page id
+/// (int32), little endian. Only [createPage] carries the route as an int32
+/// length plus its UTF-8 bytes and, starting at the next 8-byte aligned offset,
+/// the int64 handle of the arguments. Small arguments follow the handle,
+/// encoded with the [StandardMessageCodec]; larger ones are fetched by the
+/// handle with a [getArguments] message. Later events of the page carry its id
+/// only, the arguments are kept by the page container.
+///
+/// [setCanPop] is sent to Android whenever a page starts or stops being able
+/// to pop, with the flag as an uint8 after the header.
+///
+/// [popViewController] is replied by Android with an uint8, 0 when it found
+/// no live host to close.
+///
+/// [pageDisposed] is sent to Android once the container of a deallocated page
+/// was unmounted.
+///
+/// [prewarmPage] is laid out like [createPage] and also mounts the container
+/// off-stage, so its routes are built before the page is shown.
+///
+/// [enableMetrics] is sent by Android when its metrics are enabled, and
+/// [getNavigationMetrics] is replied with the [BifrostNavigationMetrics]
+/// encoded with the [StandardMessageCodec].
+///
+/// A [batch] message carries the number of events in place of the page id.
+/// Each event follows at an 8-byte aligned offset as an int32 length, 4 bytes
+/// of padding and the event message itself.
+class BifrostOpcode {
+  BifrostOpcode._();
+
+  static const int createPage = 1;
+  static const int showPage = 2;
+  static const int deallocPage = 3;
+  static const int backPressed = 4;
+  static const int setCanPop = 5;
+  static const int popViewController = 6;
+  static const int batch = 7;
+  static const int getArguments = 8;
+  static const int pageDisposed = 9;
+  static const int enableMetrics = 10;
+  static const int getNavigationMetrics = 11;
+  static const int prewarmPage = 12;
+
+  static const int headerSize = 5;
+
+  /// name of the [opcode] in the metrics, the same as on Android
+  static String nameOf(int opcode) {
+    switch (opcode) {
+      case createPage:
+        return 'createPage';
+      case showPage:
+        return 'showPage';
+      case deallocPage:
+        return 'deallocPage';
+      case backPressed:
+        return 'backPressed';
+      case setCanPop:
+        return 'setCanPop';
+      case popViewController:
+        return 'popViewController';
+      case batch:
+        return 'batch';
+      case getArguments:
+        return 'getArguments';
+      case pageDisposed:
+        return 'pageDisposed';
+      case enableMetrics:
+        return 'enableMetrics';
+      case getNavigationMetrics:
+        return 'getNavigationMetrics';
+      case prewarmPage:
+        return 'prewarmPage';
+      default:
+        return 'unknown';
+    }
+  }
+}
 
 class BifrostCoordinator {
   final BifrostManagerState manager;
 
+  /// messages are handled one after another, even while arguments are fetched
+  Future<void> _queue = Future.value();
+
+  /// arguments fetched by their handle, until the page is created
+  final _fetched = <int, dynamic>{};
+  final _fetching = <int, Future<void>>{};
+
   BifrostCoordinator(this.manager) {
-    _channel.setMethodCallHandler(_handler);
+    _channel.setMessageHandler(_handler);
   }
 
-  Future<bool> _handler(MethodCall call) async {
-    log('method: ${call.method}, arguments: ${call.arguments}');
-
-    final arguments = (call.arguments as Map?)?.cast<String, dynamic>();
-    if (arguments == null) {
+  Future<ByteData?> _handler(ByteData? message) {
+    if (message == null || message.lengthInBytes < BifrostOpcode.headerSize) {
       throw ArgumentError(
-          'Call arguments are required and must be a Map<String, dynamic>.');
+          'Coordinator messages must start with an opcode and a page id.');
     }
 
-    final id = arguments['id'] as int?;
-    if (id == null) {
-      throw ArgumentError(
-          'The `id` argument is required and must be an integer.');
-    }
-
-    switch (call.method) {
-      case 'onCreatePage':
-        manager.createPageContainerIfNeed(arguments);
-        return true;
-      case 'onShowPage':
-        manager.createPageContainerIfNeed(arguments);
-        manager.showPageContainer(id);
-        return true;
-      case 'onDeallocPage':
+    // spans the queueing and the argument fetching, so it lines up with the
+    // native trace sections of the navigation
+    final task = kReleaseMode ? null : _startTask(message);
+    final result = _queue.then((_) => _process(message));
+    _queue = result.then((_) {}, onError: (_) {});
+    if (task != null) {
+      result.then((_) => task.finish(), onError: (_) => task.finish());
+    }
+    if (!BifrostMetrics.enabled) {
+      return result;
+    }
+
+    final metrics = BifrostMetrics.of(_channel.name,
+        BifrostOpcode.nameOf(message.getUint8(0)))
+      ..calls += 1
+      ..bytesReceived += message.lengthInBytes;
+    final stopwatch = Stopwatch()..start();
+    return result.then((reply) {
+      metrics
+        ..bytesSent += reply?.lengthInBytes ?? 0
+        ..recordLatency(stopwatch.elapsedMicroseconds);
+      return reply;
+    });
+  }
+
+  TimelineTask _startTask(ByteData message) {
+    return TimelineTask()
+      ..start(
+        'Bifrost.${BifrostOpcode.nameOf(message.getUint8(0))}',
+        arguments: <String, Object>{
+          'id': message.getInt32(1, Endian.little),
+        },
+      );
+  }
+
+  Future<ByteData?> _send(ByteData message) {
+    final reply = _channel.send(message);
+    if (!BifrostMetrics.enabled) {
+      return reply;
+    }
+
+    final metrics = BifrostMetrics.of(_channel.name,
+        BifrostOpcode.nameOf(message.getUint8(0)))
+      ..calls += 1
+      ..bytesSent += message.lengthInBytes;
+    final stopwatch = Stopwatch()..start();
+    return reply.then((reply) {
+      metrics
+        ..bytesReceived += reply?.lengthInBytes ?? 0
+        ..recordLatency(stopwatch.elapsedMicroseconds);
+      return reply;
+    });
+  }
+
+  Future<ByteData?> _process(ByteData message) async {
+    if (message.getUint8(0) == BifrostOpcode.batch) {
+      final messages = _splitBatch(message);
+      await Future.wait(_prefetchArguments(messages));
+      manager.batch(() => messages.forEach(_handleMessage));
+      return null;
+    }
+    await Future.wait(_prefetchArguments([message]));
+    return _handleMessage(message);
+  }
+
+  List<ByteData> _splitBatch(ByteData message) {
+    final count = message.getInt32(1, Endian.little);
+    final messages = <ByteData>[];
+    var offset = BifrostOpcode.headerSize;
+    for (var i = 0; i < count; i++) {
+      offset = (offset + 7) & ~7;
+      final length = message.getInt32(offset, Endian.little);
+      offset += 8;
+      messages.add(ByteData.sublistView(message, offset, offset + length));
+      offset += length;
+    }
+    return messages;
+  }
+
+  /// fetch the arguments that were not sent inline, only for the pages that
+  /// are new once the [messages] before them are applied. A host recreated on
+  /// a configuration change sends the dealloc and create of the same page in
+  /// one batch, before the manager removed its container.
+  ///
+  /// Evicted pages that released their arguments fetch them again when they
+  /// are shown.
+  Iterable<Future<void>> _prefetchArguments(List<ByteData> messages) sync* {
+    final created = <int, bool>{};
+    for (final message in messages) {
+      final opcode = message.getUint8(0);
+      final id = message.getInt32(1, Endian.little);
+      switch (opcode) {
+        case BifrostOpcode.createPage:
+        case BifrostOpcode.prewarmPage:
+          if (!(created[id] ?? manager.hasPageContainer(id))) {
+            final handle = _fetchedHandle(message);
+            if (handle != null) {
+              yield _fetchArguments(handle);
+            }
+          }
+          created[id] = true;
+          break;
+        case BifrostOpcode.deallocPage:
+          created[id] = false;
+          break;
+        case BifrostOpcode.showPage:
+          final released = created.containsKey(id)
+              ? null
+              : manager.releasedArgumentsHandle(id);
+          if (released != null) {
+            yield _fetchArguments(released);
+          }
+          break;
+      }
+    }
+  }
+
+  /// handle of the arguments of a page that were not sent inline
+  int? _fetchedHandle(ByteData message) {
+    final routeEnd = _routeEnd(message);
+    if (routeEnd == null) {
+      return null;
+    }
+    final offset = (routeEnd + 7) & ~7;
+    if (offset + 8 != message.lengthInBytes) {
+      return null;
+    }
+    return message.getInt64(offset, Endian.little);
+  }
+
+  Future<void> _fetchArguments(int handle) {
+    if (_fetched.containsKey(handle)) {
+      return Future.value();
+    }
+    return _fetching.putIfAbsent(handle, () async {
+      final request = ByteData(16)
+        ..setUint8(0, BifrostOpcode.getArguments)
+        ..setInt64(8, handle, Endian.little);
+      final reply = await _send(request);
+      _fetched[handle] = const StandardMessageCodec().decodeMessage(reply);
+      _fetching.remove(handle);
+    });
+  }
+
+  ByteData? _handleMessage(ByteData message) {
+    if (kReleaseMode) {
+      return _applyMessage(message);
+    }
+    final opcode = message.getUint8(0);
+    Timeline.startSync('Bifrost.${BifrostOpcode.nameOf(opcode)}', arguments: {
+      'id': message.getInt32(1, Endian.little),
+    });
+    try {
+      return _applyMessage(message);
+    } finally {
+      Timeline.finishSync();
+    }
+  }
+
+  ByteData? _applyMessage(ByteData message) {
+    final opcode = message.getUint8(0);
+    final id = message.getInt32(1, Endian.little);
+    logEvent(opcode, id);
+
+    switch (opcode) {
+      case BifrostOpcode.createPage:
+        _createPageContainer(id, message);
+        return null;
+      case BifrostOpcode.prewarmPage:
+        _createPageContainer(id, message, prewarm: true);
+        return null;
+      case BifrostOpcode.showPage:
+        final handle = manager.releasedArgumentsHandle(id);
+        manager.showPageContainer(
+          id,
+          releasedArguments: handle != null ? _fetched.remove(handle) : null,
+        );
+        return null;
+      case BifrostOpcode.deallocPage:
         manager.deallocPageContainer(id);
-        return true;
-      case 'onBackPressed':
+        return null;
+      case BifrostOpcode.backPressed:
         manager.onBackPressed(id);
-        return true;
-      case 'canPop':
-        return manager.canPop(id);
+        return null;
+      case BifrostOpcode.enableMetrics:
+        BifrostMetrics.enabled = true;
+        return null;
+      case BifrostOpcode.getNavigationMetrics:
+        return const StandardMessageCodec()
+            .encodeMessage(BifrostMetrics.navigation.toMap());
       default:
-        return false;
+        return null;
     }
   }
 
-  void popViewController() {
-    _channel.invokeMethod('popViewController');
+  void _createPageContainer(int id, ByteData message, {bool prewarm = false}) {
+    if (manager.hasPageContainer(id)) {
+      return;
+    }
+    final routeEnd = _routeEnd(message);
+    if (routeEnd == null) {
+      throw ArgumentError('The `route` is required to create a page.');
+    }
+    final route = utf8.decode(message.buffer.asUint8List(
+      message.offsetInBytes + BifrostOpcode.headerSize + 4,
+      routeEnd - BifrostOpcode.headerSize - 4,
+    ));
+    final arguments = _readArguments(message, routeEnd);
+    manager.createPageContainerIfNeed(
+      id,
+      route,
+      arguments,
+      argumentsHandle: _fetchedHandle(message) ?? 0,
+      prewarm: prewarm,
+    );
+  }
+
+  int? _routeEnd(ByteData message) {
+    if (message.lengthInBytes < BifrostOpcode.headerSize + 4) {
+      return null;
+    }
+    final length = message.getInt32(BifrostOpcode.headerSize, Endian.little);
+    return BifrostOpcode.headerSize + 4 + length;
+  }
+
+  dynamic _readArguments(ByteData message, int routeEnd) {
+    final offset = (routeEnd + 7) & ~7;
+    if (offset + 8 > message.lengthInBytes) {
+      return null;
+    }
+    final handle = message.getInt64(offset, Endian.little);
+    if (offset + 8 == message.lengthInBytes) {
+      return _fetched.remove(handle);
+    }
+    // typed lists are decoded in place, so the arguments start 8-byte aligned
+    return const StandardMessageCodec()
+        .decodeMessage(ByteData.sublistView(message, offset + 8));
+  }
+
+  /// let Android answer back presses without asking the page
+  void setCanPop(int id, bool canPop) {
+    if (!Platform.isAndroid) {
+      return;
+    }
+    final message = ByteData(BifrostOpcode.headerSize + 1)
+      ..setUint8(0, BifrostOpcode.setCanPop)
+      ..setInt32(1, id, Endian.little)
+      ..setUint8(BifrostOpcode.headerSize, canPop ? 1 : 0);
+    _send(message);
+  }
+
+  /// let Android know the memory of a closed page was given back
+  void pageDisposed(int id) {
+    if (!Platform.isAndroid) {
+      return;
+    }
+    final message = ByteData(BifrostOpcode.headerSize)
+      ..setUint8(0, BifrostOpcode.pageDisposed)
+      ..setInt32(1, id, Endian.little);
+    _send(message);
+  }
+
+  /// close the view controller on iOS, or the host of the page [id] on
+  /// Android. Completes with false when Android had no live host to close.
+  Future<bool> popViewController(int id) async {
+    final message = ByteData(BifrostOpcode.headerSize)
+      ..setUint8(0, BifrostOpcode.popViewController)
+      ..setInt32(1, id, Endian.little);
+    final reply = await _send(message);
+    if (!Platform.isAndroid) {
+      return true;
+    }
+    return reply != null && reply.lengthInBytes > 0 && reply.getUint8(0) == 1;
   }
 }
@@ -2,12 +2,19 @@ import 'package:flutter/widgets.dart';
 
 import 'bifrost_container.dart';
 import 'bifrost_coordinator.dart';
+import 'bifrost_observer.dart';
 import 'bifrost_settings.dart';
 
 class BifrostManager extends StatefulWidget {
   final Navigator initialNavigator;
 
-  const BifrostManager(this.initialNavigator);
+  /// maximum number of page containers kept mounted, the least recently shown
+  /// ones beyond it are unmounted and their route stack is rebuilt when they
+  /// are shown again. Containers with routes that can not be generated again
+  /// by name are never evicted. Unbounded when null.
+  final int? maxLiveContainers;
+
+  const BifrostManager(this.initialNavigator, {this.maxLiveContainers});
 
   static BifrostManagerState? of(BuildContext context) {
     if (context is StatefulElement && context.state is BifrostManagerState) {
@@ -21,40 +28,104 @@ class BifrostManager extends StatefulWidget {
 }
 
 class BifrostManagerState extends State<BifrostManager> {
-  final List<BifrostContainer> _containers = <BifrostContainer>[];
+  /// page containers by id, in creation order
+  final Map<int, BifrostContainer> _containers = <int, BifrostContainer>{};
+
+  /// children of the [IndexedStack] and their index by page id, rebuilt only
+  /// when containers are added or removed
+  List<BifrostContainer> _children = const <BifrostContainer>[];
+  Map<int, int> _childIndexes = const <int, int>{};
+  bool _childrenChanged = false;
+
+  /// route stacks of the evicted containers, rebuilt when they are shown
+  final Map<int, _EvictedPage> _evicted = <int, _EvictedPage>{};
+
+  /// ids of the page containers, the most recently shown last
+  final Set<int> _recentlyShown = <int>{};
 
   late BifrostCoordinator _coordinator;
 
-  int? _index;
+  int? _visibleId;
+
+  int _batchDepth = 0;
+  bool _needsRebuild = false;
 
   Navigator get initialNavigator => widget.initialNavigator;
 
   @override
   void initState() {
     _coordinator = BifrostCoordinator(this);
+    BifrostObserver.setGlobalObservers(initialNavigator.observers);
     _createDefaultPageContainer();
     super.initState();
   }
 
+  @override
+  void didUpdateWidget(BifrostManager oldWidget) {
+    super.didUpdateWidget(oldWidget);
+    BifrostObserver.setGlobalObservers(initialNavigator.observers);
+  }
+
   @override
   Widget build(BuildContext context) {
+    if (_childrenChanged) {
+      _childrenChanged = false;
+      _children = _containers.values.toList(growable: false);
+      _childIndexes = <int, int>{
+        for (var i = 0; i < _children.length; i++) _children[i].settings.id: i,
+      };
+    }
     return IndexedStack(
-      children: _containers,
-      index: _index ?? 0,
+      children: _children,
+      index: _childIndexes[_visibleId] ?? 0,
     );
   }
 
-  /// create page container if need
-  void createPageContainerIfNeed(Map<String, dynamic> arguments) {
-    assert(arguments['id'] != null);
-    assert(arguments['route'] != null);
-    final container = BifrostSettings.from(
-      navigator: initialNavigator,
-      arguments: arguments,
-    );
-    final id = container.id;
-    if (_containers.lastIndexWhere((e) => e.settings.id == id) == -1) {
-      _createPageContainer(container);
+  /// apply several coordinator events with a single rebuild
+  void batch(VoidCallback updates) {
+    _batchDepth++;
+    try {
+      updates();
+    } finally {
+      _batchDepth--;
+    }
+    if (_batchDepth == 0 && _needsRebuild) {
+      _needsRebuild = false;
+      setState(() {});
+    }
+  }
+
+  void _markNeedsRebuild() {
+    if (_batchDepth > 0) {
+      _needsRebuild = true;
+    } else {
+      setState(() {});
+    }
+  }
+
+  /// whether a container was already created for the page [id]
+  bool hasPageContainer(int id) =>
+      _containers.containsKey(id) || _evicted.containsKey(id);
+
+  /// create page container if need, a [prewarm]ed container is mounted
+  /// off-stage right away instead of when some page is shown
+  void createPageContainerIfNeed(
+    int id,
+    String route,
+    dynamic arguments, {
+    int argumentsHandle = 0,
+    bool prewarm = false,
+  }) {
+    if (!hasPageContainer(id)) {
+      _createPageContainer(BifrostSettings(
+        id: id,
+        route: route,
+        arguments: arguments,
+        argumentsHandle: argumentsHandle,
+      ));
+      if (prewarm) {
+        _markNeedsRebuild();
+      }
     }
   }
 
@@ -69,38 +140,162 @@ class BifrostManagerState extends State<BifrostManager> {
   }
 
   /// create page container
-  void _createPageContainer(BifrostSettings settings) {
-    final container = BifrostContainer.obtain(initialNavigator, settings);
-    _containers.add(container);
+  void _createPageContainer(
+    BifrostSettings settings, {
+    List<RouteSettings>? restoredRoutes,
+  }) {
+    settings.observer.onCanPopChanged =
+        (canPop) => _coordinator.setCanPop(settings.id, canPop);
+    _containers[settings.id] = BifrostContainer.obtain(
+      initialNavigator,
+      settings,
+      restoredRoutes: restoredRoutes,
+    );
+    _childrenChanged = true;
+  }
+
+  /// handle of the arguments released by the evicted page [id], they must be
+  /// fetched again before it is shown
+  int? releasedArgumentsHandle(int id) {
+    final evicted = _evicted[id];
+    if (evicted == null || evicted.releasedRoutes == null) {
+      return null;
+    }
+    return evicted.settings.argumentsHandle;
   }
 
-  /// show page container by id
-  void showPageContainer(int id) {
-    final index = _containers.lastIndexWhere((e) => e.settings.id == id);
-    if (index > -1 && index != _index) {
-      setState(() => _index = index);
+  /// show page container by id, an evicted container is mounted again with
+  /// the [releasedArguments] fetched by [releasedArgumentsHandle]
+  void showPageContainer(int id, {dynamic releasedArguments}) {
+    final evicted = _evicted.remove(id)?.restore(releasedArguments);
+    if (evicted != null) {
+      _createPageContainer(evicted.settings, restoredRoutes: evicted.routes);
+    }
+    if (!_containers.containsKey(id)) {
+      return;
+    }
+    _recentlyShown
+      ..remove(id)
+      ..add(id);
+
+    if (id != _visibleId) {
+      _visibleId = id;
+      _evictLeastRecentlyShown();
+      _markNeedsRebuild();
     }
   }
 
-  /// remove page container by id
+  /// unmount the least recently shown containers beyond the limit
+  void _evictLeastRecentlyShown() {
+    final maxLiveContainers = widget.maxLiveContainers;
+    if (maxLiveContainers == null) {
+      return;
+    }
+    var excess = _containers.length - maxLiveContainers;
+    for (final id in _recentlyShown) {
+      if (excess <= 0) {
+        break;
+      }
+      final container = _containers[id];
+      if (container == null || id == _visibleId) {
+        continue;
+      }
+      final settings = container.settings;
+      final routes = settings.observer.restorableRoutes;
+      if (routes == null || routes.isEmpty) {
+        continue;
+      }
+      settings.observer.reset();
+      _evicted[id] = _EvictedPage.release(settings, routes);
+      _containers.remove(id);
+      _childrenChanged = true;
+      excess--;
+    }
+  }
+
+  /// remove page container by id, it is unmounted right away and native is
+  /// told once its routes are disposed
   void deallocPageContainer(int id) {
-    _containers.removeWhere((e) => e.settings.id == id);
+    _evicted.remove(id);
+    _recentlyShown.remove(id);
+    final container = _containers.remove(id);
+    if (container == null) {
+      return;
+    }
+    container.settings.observer.dispose();
+    _childrenChanged = true;
+    if (id == _visibleId) {
+      _visibleId = _recentlyShown.isNotEmpty ? _recentlyShown.last : null;
+    }
+    _markNeedsRebuild();
+    WidgetsBinding.instance!
+        .addPostFrameCallback((_) => _coordinator.pageDisposed(id));
   }
 
   /// on back button pressed
   void onBackPressed(int id) {
-    final container = _containers.firstWhere((e) => e.settings.id == id);
-    BifrostContainer.stateOf(container)?.performBackPressed();
+    final container = _containers[id];
+    if (container != null) {
+      BifrostContainer.stateOf(container)?.performBackPressed();
+    }
   }
 
-  /// check if page container can pop
-  bool canPop(int id) {
-    final container = _containers.firstWhere((e) => e.settings.id == id);
-    return BifrostContainer.stateOf(container)?.canPop() ?? false;
+  /// close the native host of the page [id], its navigator has nothing to
+  /// pop. Completes with false when there was no host to close.
+  Future<bool> popViewController(int id) {
+    return _coordinator.popViewController(id);
+  }
+}
+
+class _EvictedPage {
+  final BifrostSettings settings;
+  final List<RouteSettings> routes;
+
+  /// indexes of the [routes] that held the released arguments, null when
+  /// nothing was released
+  final List<int>? releasedRoutes;
+
+  _EvictedPage(this.settings, this.routes, [this.releasedRoutes]);
+
+  /// drop the arguments that Android can send again by their handle, so an
+  /// evicted page does not keep large arguments alive
+  factory _EvictedPage.release(
+    BifrostSettings settings,
+    List<RouteSettings> routes,
+  ) {
+    if (settings.argumentsHandle == 0 || settings.arguments == null) {
+      return _EvictedPage(settings, routes);
+    }
+    final releasedRoutes = <int>[
+      for (var i = 0; i < routes.length; i++)
+        if (identical(routes[i].arguments, settings.arguments)) i,
+    ];
+    return _EvictedPage(
+      settings.withArguments(null),
+      [
+        for (var i = 0; i < routes.length; i++)
+          releasedRoutes.contains(i)
+              ? routes[i].copyWith(arguments: null)
+              : routes[i],
+      ],
+      releasedRoutes,
+    );
   }
 
-  /// pop ios view controller
-  void popViewController() {
-    _coordinator.popViewController();
+  /// the page with the [arguments] it released
+  _EvictedPage restore(dynamic arguments) {
+    final releasedRoutes = this.releasedRoutes;
+    if (releasedRoutes == null) {
+      return this;
+    }
+    return _EvictedPage(
+      settings.withArguments(arguments),
+      [
+        for (var i = 0; i < routes.length; i++)
+          releasedRoutes.contains(i)
+              ? routes[i].copyWith(arguments: arguments)
+              : routes[i],
+      ],
+    );
   }
 }
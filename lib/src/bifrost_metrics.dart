@@ -0,0 +1,224 @@
+import 'dart:developer';
+import 'dart:ui';
+
+import 'package:flutter/scheduler.dart';
+import 'package:flutter/services.dart';
+
+/// Counters of the traffic on the bifrost channels, matching the ones recorded
+/// by `Bifrost.metrics()` on Android.
+///
+/// Nothing is recorded until [enabled] is set.
+class BifrostMetrics {
+  BifrostMetrics._();
+
+  static bool enabled = false;
+
+  static final _channels = <String, Map<String, BifrostMethodMetrics>>{};
+
+  /// navigation of the page containers, the counters and depths are always
+  /// recorded but the latencies only while [enabled]
+  static final BifrostNavigationMetrics navigation =
+      BifrostNavigationMetrics._();
+
+  /// metrics of every method called so far
+  static List<BifrostMethodMetrics> snapshot() => [
+        for (final methods in _channels.values)
+          for (final metrics in methods.values) metrics._copy(),
+      ];
+
+  static void reset() {
+    _channels.clear();
+    navigation._reset();
+  }
+
+  /// metrics of the [method] of the [channel], created on first use
+  static BifrostMethodMetrics of(String channel, String method) => _channels
+      .putIfAbsent(channel, () => <String, BifrostMethodMetrics>{})
+      .putIfAbsent(method, () => BifrostMethodMetrics._(channel, method));
+}
+
+/// Traffic of one method of a bifrost channel, coordinator messages are
+/// grouped by opcode. Latencies are in microseconds, from a message being sent
+/// or received until its reply.
+class BifrostMethodMetrics {
+  final String channel;
+  final String method;
+
+  int calls = 0;
+  int bytesSent = 0;
+  int bytesReceived = 0;
+  int errors = 0;
+  int notImplemented = 0;
+  int totalMicros = 0;
+  int maxMicros = 0;
+
+  BifrostMethodMetrics._(this.channel, this.method);
+
+  int get meanMicros => calls == 0 ? 0 : totalMicros ~/ calls;
+
+  void recordLatency(int micros) {
+    totalMicros += micros;
+    if (micros > maxMicros) {
+      maxMicros = micros;
+    }
+  }
+
+  BifrostMethodMetrics _copy() => BifrostMethodMetrics._(channel, method)
+    ..calls = calls
+    ..bytesSent = bytesSent
+    ..bytesReceived = bytesReceived
+    ..errors = errors
+    ..notImplemented = notImplemented
+    ..totalMicros = totalMicros
+    ..maxMicros = maxMicros;
+
+  @override
+  String toString() => '$channel#$method: $calls calls, '
+      '$bytesSent bytes sent, $bytesReceived bytes received, '
+      '$errors errors, $notImplemented not implemented, '
+      'mean ${meanMicros}us, max ${maxMicros}us';
+}
+
+/// Navigation of the page containers, reported by their observers.
+///
+/// The push-to-first-frame latency is measured from the push until the raster
+/// of the first frame built after it finishes, from the frame timings of the
+/// [SchedulerBinding].
+class BifrostNavigationMetrics {
+  BifrostNavigationMetrics._();
+
+  int pushes = 0;
+  int pops = 0;
+  int removes = 0;
+  int replaces = 0;
+
+  int firstFrames = 0;
+  int totalPushToFirstFrameMicros = 0;
+  int maxPushToFirstFrameMicros = 0;
+
+  /// stack depth of each page container, by page id
+  final Map<int, int> stackDepths = <int, int>{};
+
+  /// pushes waiting for their first frame, as timeline timestamps
+  final List<int> _pendingPushes = <int>[];
+  bool _isListening = false;
+
+  int get meanPushToFirstFrameMicros =>
+      firstFrames == 0 ? 0 : totalPushToFirstFrameMicros ~/ firstFrames;
+
+  /// called by the observer of the page [id]
+  void onPush(int id, int depth) {
+    pushes++;
+    stackDepths[id] = depth;
+    if (BifrostMetrics.enabled) {
+      _pendingPushes.add(Timeline.now);
+      if (!_isListening) {
+        _isListening = true;
+        SchedulerBinding.instance!.addTimingsCallback(_onTimings);
+      }
+    }
+  }
+
+  /// called by the observer of the page [id]
+  void onPop(int id, int depth) {
+    pops++;
+    stackDepths[id] = depth;
+  }
+
+  /// called by the observer of the page [id]
+  void onRemove(int id, int depth) {
+    removes++;
+    stackDepths[id] = depth;
+  }
+
+  /// called by the observer of the page [id]
+  void onReplace(int id) => replaces++;
+
+  /// called by the observer of the page [id] once it is deallocated
+  void onDispose(int id) => stackDepths.remove(id);
+
+  // frame timings and the timeline share the monotonic clock of the platform
+  void _onTimings(List<FrameTiming> timings) {
+    for (final timing in timings) {
+      final buildStart = timing.timestampInMicroseconds(FramePhase.buildStart);
+      final rasterFinish =
+          timing.timestampInMicroseconds(FramePhase.rasterFinish);
+      while (_pendingPushes.isNotEmpty && _pendingPushes.first <= buildStart) {
+        final latency = rasterFinish - _pendingPushes.removeAt(0);
+        firstFrames++;
+        totalPushToFirstFrameMicros += latency;
+        if (latency > maxPushToFirstFrameMicros) {
+          maxPushToFirstFrameMicros = latency;
+        }
+      }
+    }
+    if (_pendingPushes.isEmpty) {
+      _isListening = false;
+      SchedulerBinding.instance!.removeTimingsCallback(_onTimings);
+    }
+  }
+
+  void _reset() {
+    pushes = 0;
+    pops = 0;
+    removes = 0;
+    replaces = 0;
+    firstFrames = 0;
+    totalPushToFirstFrameMicros = 0;
+    maxPushToFirstFrameMicros = 0;
+  }
+
+  /// encoded for the native side, see `Bifrost.navigationMetrics()`
+  Map<String, dynamic> toMap() => <String, dynamic>{
+        'pushes': pushes,
+        'pops': pops,
+        'removes': removes,
+        'replaces': replaces,
+        'firstFrames': firstFrames,
+        'meanPushToFirstFrameMicros': meanPushToFirstFrameMicros,
+        'maxPushToFirstFrameMicros': maxPushToFirstFrameMicros,
+        'stackDepths': stackDepths,
+      };
+}
+
+/// [MethodChannel] that records its calls in [BifrostMetrics].
+///
+/// Only [invokeMethod] is recorded, [invokeListMethod] and [invokeMapMethod]
+/// call it.
+class BifrostMethodChannel extends MethodChannel {
+  const BifrostMethodChannel(String name) : super(name);
+
+  @override
+  Future<T?> invokeMethod<T>(String method, [dynamic arguments]) =>
+      _record(method, arguments,
+          () => super.invokeMethod<T>(method, arguments));
+
+  Future<R> _record<R>(
+    String method,
+    dynamic arguments,
+    Future<R> Function() invoke,
+  ) {
+    if (!BifrostMetrics.enabled) {
+      return invoke();
+    }
+    final metrics = BifrostMetrics.of(name, method)
+      ..calls += 1
+      ..bytesSent += codec
+          .encodeMethodCall(MethodCall(method, arguments))
+          .lengthInBytes;
+    final stopwatch = Stopwatch()..start();
+    return invoke().then((result) {
+      metrics.bytesReceived +=
+          codec.encodeSuccessEnvelope(result).lengthInBytes;
+      return result;
+    }, onError: (Object error, StackTrace stackTrace) {
+      if (error is PlatformException) {
+        metrics.errors += 1;
+      } else if (error is MissingPluginException) {
+        metrics.notImplemented += 1;
+      }
+      return Future<R>.error(error, stackTrace);
+    }).whenComplete(
+        () => metrics.recordLatency(stopwatch.elapsedMicroseconds));
+  }
+}
@@ -1,11 +1,36 @@
 import 'package:flutter/widgets.dart';
 
+import 'bifrost_metrics.dart';
+
 class BifrostObserver extends NavigatorObserver {
-  int _pagesIndStack = 0;
+  final List<Route<dynamic>> _pagesInStack = <Route<dynamic>>[];
+
+  bool get onlyPage => _pagesInStack.isEmpty;
+
+  /// whether the navigator has routes to pop before leaving the page
+  bool get canPop => _pagesInStack.length > 1;
+
+  /// settings of the routes in the stack, from the bottom, or null when some
+  /// route has no name and could not be generated again
+  List<RouteSettings>? get restorableRoutes {
+    if (_pagesInStack.any((route) => route.settings.name == null)) {
+      return null;
+    }
+    return [for (final route in _pagesInStack) route.settings];
+  }
 
-  bool get onlyPage => _pagesIndStack == 0;
+  /// forget the stack of a navigator that was unmounted, the routes pushed
+  /// again when it is rebuilt are tracked from scratch
+  void reset() => _pagesInStack.clear();
 
-  BifrostObserver(List<NavigatorObserver>? observers) {
+  /// called whenever [canPop] changes
+  ValueChanged<bool>? onCanPopChanged;
+
+  /// id of the page, for the navigation metrics
+  final int pageId;
+
+  /// [observers] are notified of the routes of this page only
+  BifrostObserver(List<NavigatorObserver>? observers, {this.pageId = 0}) {
     if (observers != null) {
       for (final NavigatorObserver observer in observers) {
         addProxyObserver(observer);
@@ -13,40 +38,84 @@ class BifrostObserver extends NavigatorObserver {
     }
   }
 
-  static final Set<NavigatorObserver> _proxyObservers = <NavigatorObserver>{};
+  /// observers of the app navigator, notified of the routes of every page
+  static List<NavigatorObserver> _globalObservers = const <NavigatorObserver>[];
+
+  /// observers of this page only
+  final List<NavigatorObserver> _proxyObservers = <NavigatorObserver>[];
+
+  /// replace the observers notified of the routes of every page, an observer
+  /// given more than once is notified once
+  static void setGlobalObservers(List<NavigatorObserver> observers) {
+    _globalObservers = observers.toSet().toList(growable: false);
+  }
 
   void addProxyObserver(NavigatorObserver observer) {
-    _proxyObservers.add(observer);
+    if (!_globalObservers.contains(observer) &&
+        !_proxyObservers.contains(observer)) {
+      _proxyObservers.add(observer);
+    }
+  }
+
+  void removeProxyObserver(NavigatorObserver observer) {
+    _proxyObservers.remove(observer);
+  }
+
+  /// release the observers of a page that was deallocated
+  void dispose() {
+    BifrostMetrics.navigation.onDispose(pageId);
+    onCanPopChanged = null;
+    _pagesInStack.clear();
+    _proxyObservers.clear();
   }
 
+  Iterable<NavigatorObserver> get _observers =>
+      _globalObservers.followedBy(_proxyObservers);
+
   @override
   void didPush(Route<dynamic> route, Route<dynamic>? previousRoute) {
-    _pagesIndStack++;
-    for (final NavigatorObserver observer in _proxyObservers) {
+    _updateStack(() => _pagesInStack.add(route));
+    BifrostMetrics.navigation.onPush(pageId, _pagesInStack.length);
+    for (final NavigatorObserver observer in _observers) {
       observer.didPush(route, previousRoute);
     }
   }
 
   @override
   void didPop(Route<dynamic> route, Route<dynamic>? previousRoute) {
-    _pagesIndStack--;
-    for (final NavigatorObserver observer in _proxyObservers) {
+    _updateStack(() => _pagesInStack.remove(route));
+    BifrostMetrics.navigation.onPop(pageId, _pagesInStack.length);
+    for (final NavigatorObserver observer in _observers) {
       observer.didPop(route, previousRoute);
     }
   }
 
   @override
   void didRemove(Route<dynamic> route, Route<dynamic>? previousRoute) {
-    _pagesIndStack--;
-    for (final NavigatorObserver observer in _proxyObservers) {
+    _updateStack(() => _pagesInStack.remove(route));
+    BifrostMetrics.navigation.onRemove(pageId, _pagesInStack.length);
+    for (final NavigatorObserver observer in _observers) {
       observer.didRemove(route, previousRoute);
     }
   }
 
   @override
   void didReplace({Route<dynamic>? newRoute, Route<dynamic>? oldRoute}) {
-    for (final NavigatorObserver observer in _proxyObservers) {
+    final index = oldRoute == null ? -1 : _pagesInStack.indexOf(oldRoute);
+    if (index != -1 && newRoute != null) {
+      _pagesInStack[index] = newRoute;
+    }
+    BifrostMetrics.navigation.onReplace(pageId);
+    for (final NavigatorObserver observer in _observers) {
       observer.didReplace(newRoute: newRoute, oldRoute: oldRoute);
     }
   }
+
+  void _updateStack(VoidCallback update) {
+    final couldPop = canPop;
+    update();
+    if (couldPop != canPop) {
+      onCanPopChanged?.call(canPop);
+    }
+  }
 }
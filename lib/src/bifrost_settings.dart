@@ -6,14 +6,27 @@ class BifrostSettings {
   final int id;
   final String route;
   final dynamic arguments;
+
+  /// handle the [arguments] were fetched by from Android, 0 when they were
+  /// sent inline. Evicted containers release such arguments and fetch them
+  /// again when they are shown.
+  final int argumentsHandle;
   final BifrostObserver observer;
 
   BifrostSettings({
     required this.id,
     required this.route,
     this.arguments,
+    this.argumentsHandle = 0,
     List<NavigatorObserver>? observers,
-  }) : observer = BifrostObserver(observers);
+  }) : observer = BifrostObserver(observers, pageId: id);
+
+  BifrostSettings._(
+      this.id, this.route, this.arguments, this.argumentsHandle, this.observer);
+
+  /// the same page with other [arguments], it keeps its observer
+  BifrostSettings withArguments(dynamic arguments) =>
+      BifrostSettings._(id, route, arguments, argumentsHandle, observer);
 
   factory BifrostSettings.from({
     required Navigator navigator,
@@ -23,6 +36,5 @@ class BifrostSettings {
         id: arguments['id'] ?? 0,
         route: arguments['route'] ?? navigator.initialRoute,
         arguments: arguments['arguments'],
-        observers: navigator.observers,
       );
 }
@@ -1,4 +1,7 @@
 import 'dart:developer' as developer;
+import 'dart:typed_data';
+
+import 'package:flutter/foundation.dart';
 
 class Level {
   final String name;
@@ -19,15 +22,92 @@ class Level {
   static const Level WARNING = Level('WARNING', 900);
 }
 
-void log(String message,
+/// log the [message] in debug builds, it is only built when logged and at
+/// most once.
+///
+/// Warnings are also kept in the [BifrostLog] and, outside release builds,
+/// marked on the timeline.
+void log(String Function() message,
     {Level level = Level.CONFIG, String name = 'bifrost'}) {
+  String? built;
   assert(() {
+    final text = built = message();
     developer.log(
-      message,
+      text,
       level: level.value,
       name: name,
       time: DateTime.now(),
     );
     return true;
   }());
+  if (level.value >= Level.WARNING.value) {
+    final text = built ?? message();
+    BifrostLog._record(BifrostLog.message, 0, text);
+    if (!kReleaseMode) {
+      developer.Timeline.instantSync(name, arguments: {'message': text});
+    }
+  }
+}
+
+/// record the coordinator [event] of the page [id] in the [BifrostLog],
+/// without building any string
+void logEvent(int event, int id) => BifrostLog._record(event, id, null);
+
+/// Entry of the [BifrostLog].
+class BifrostLogEntry {
+  /// coordinator opcode, or [BifrostLog.message] for logged warnings
+  final int event;
+  final int id;
+
+  /// timeline timestamp, see [developer.Timeline.now]
+  final int timestampMicros;
+  final String? message;
+
+  const BifrostLogEntry(
+      this.event, this.id, this.timestampMicros, this.message);
+
+  @override
+  String toString() => message ?? '$timestampMicros $event $id';
+}
+
+/// The last coordinator events and warnings, kept in typed lists so recording
+/// them does not allocate.
+class BifrostLog {
+  BifrostLog._();
+
+  /// event of the logged warnings
+  static const int message = 0;
+
+  /// number of entries kept, the oldest ones are overwritten
+  static const int capacity = 256;
+
+  static final Uint8List _events = Uint8List(capacity);
+  static final Int32List _ids = Int32List(capacity);
+  static final Int64List _timestamps = Int64List(capacity);
+  static final List<String?> _messages = List<String?>.filled(capacity, null);
+  static int _count = 0;
+
+  static void _record(int event, int id, String? message) {
+    final index = _count % capacity;
+    _events[index] = event;
+    _ids[index] = id;
+    _timestamps[index] = developer.Timeline.now;
+    _messages[index] = message;
+    _count++;
+  }
+
+  /// the recorded entries from the oldest to the newest
+  static List<BifrostLogEntry> entries() {
+    final size = _count < capacity ? _count : capacity;
+    return List<BifrostLogEntry>.generate(size, (i) {
+      final index = (_count - size + i) % capacity;
+      return BifrostLogEntry(
+          _events[index], _ids[index], _timestamps[index], _messages[index]);
+    });
+  }
+
+  static void clear() {
+    _messages.fillRange(0, capacity, null);
+    _count = 0;
+  }
 }
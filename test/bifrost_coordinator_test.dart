@@ -0,0 +1,54 @@
+import 'package:bifrost/src/bifrost_coordinator.dart';
+import 'package:flutter_test/flutter_test.dart';
+
+import 'coordinator_messages.dart';
+
+void main() {
+  late FakeNativeCoordinator native;
+
+  setUp(() => native = FakeNativeCoordinator()..install());
+  tearDown(() => native.uninstall());
+
+  testWidgets('fetches the arguments of a page created by handle',
+      (tester) async {
+    native.arguments[7] = {'id': 42};
+    await tester.pumpWidget(bifrostApp());
+
+    await native.deliver(
+      tester,
+      batch([
+        createPage(1, '/', 7),
+        pageEvent(BifrostOpcode.showPage, 1),
+      ]),
+    );
+
+    expect(native.fetchedHandles, [7]);
+    expect(containerOf(tester, 1).settings.arguments, {'id': 42});
+  });
+
+  testWidgets('fetches the arguments again when a page is deallocated and '
+      'created in one batch', (tester) async {
+    native.arguments[7] = {'id': 42};
+    await tester.pumpWidget(bifrostApp());
+    await native.deliver(
+      tester,
+      batch([
+        createPage(1, '/', 7),
+        pageEvent(BifrostOpcode.showPage, 1),
+      ]),
+    );
+
+    // a host recreated on a configuration change
+    await native.deliver(
+      tester,
+      batch([
+        pageEvent(BifrostOpcode.deallocPage, 1),
+        createPage(1, '/', 7),
+        pageEvent(BifrostOpcode.showPage, 1),
+      ]),
+    );
+
+    expect(native.fetchedHandles, [7, 7]);
+    expect(containerOf(tester, 1).settings.arguments, {'id': 42});
+  });
+}
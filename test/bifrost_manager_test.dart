@@ -0,0 +1,71 @@
+import 'package:bifrost/src/bifrost_container.dart';
+import 'package:bifrost/src/bifrost_coordinator.dart';
+import 'package:flutter_test/flutter_test.dart';
+
+import 'coordinator_messages.dart';
+
+void main() {
+  late FakeNativeCoordinator native;
+
+  setUp(() => native = FakeNativeCoordinator()
+    ..install()
+    ..arguments[7] = {'id': 1}
+    ..arguments[8] = {'id': 2});
+  tearDown(() => native.uninstall());
+
+  /// show the pages 1 and 2, with room for a single one besides the default
+  /// container, so the page 1 is evicted
+  Future<void> evictFirstPage(WidgetTester tester) async {
+    await tester.pumpWidget(bifrostApp(maxLiveContainers: 2));
+    await native.deliver(
+      tester,
+      batch([
+        createPage(1, '/a', 7),
+        pageEvent(BifrostOpcode.showPage, 1),
+      ]),
+    );
+    await native.deliver(
+      tester,
+      batch([
+        createPage(2, '/b', 8),
+        pageEvent(BifrostOpcode.showPage, 2),
+      ]),
+    );
+
+    final mounted = tester
+        .widgetList<BifrostContainer>(
+            find.byType(BifrostContainer, skipOffstage: false))
+        .map((container) => container.settings.id);
+    expect(mounted, isNot(contains(1)));
+    expect(native.fetchedHandles, [7, 8]);
+  }
+
+  testWidgets('an evicted page fetches its arguments again when shown',
+      (tester) async {
+    await evictFirstPage(tester);
+
+    await native.deliver(tester, pageEvent(BifrostOpcode.showPage, 1));
+
+    expect(native.fetchedHandles, [7, 8, 7]);
+    expect(containerOf(tester, 1).settings.arguments, {'id': 1});
+    expect(find.text('/a {id: 1}', skipOffstage: false), findsOneWidget);
+  });
+
+  testWidgets('an evicted page recreated in one batch keeps its arguments',
+      (tester) async {
+    await evictFirstPage(tester);
+
+    await native.deliver(
+      tester,
+      batch([
+        pageEvent(BifrostOpcode.deallocPage, 1),
+        createPage(1, '/a', 7),
+        pageEvent(BifrostOpcode.showPage, 1),
+      ]),
+    );
+
+    expect(native.fetchedHandles, [7, 8, 7]);
+    expect(containerOf(tester, 1).settings.arguments, {'id': 1});
+    expect(find.text('/a {id: 1}', skipOffstage: false), findsOneWidget);
+  });
+}
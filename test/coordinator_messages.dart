@@ -0,0 +1,109 @@
+import 'dart:convert';
+import 'dart:typed_data';
+
+import 'package:bifrost/bifrost.dart';
+import 'package:bifrost/src/bifrost_container.dart';
+import 'package:bifrost/src/bifrost_coordinator.dart';
+import 'package:flutter/services.dart';
+import 'package:flutter/widgets.dart';
+import 'package:flutter_test/flutter_test.dart';
+
+/// Stands in for the Android side of the coordinator channel: it answers
+/// [BifrostOpcode.getArguments] from [arguments] and records the requests.
+class FakeNativeCoordinator {
+  static const channel = 'bifrost/coordinator';
+
+  /// encodable arguments by their handle
+  final Map<int, dynamic> arguments = <int, dynamic>{};
+
+  /// handles of the arguments requested by flutter, in order
+  final List<int> fetchedHandles = <int>[];
+
+  BinaryMessenger get _messenger =>
+      ServicesBinding.instance!.defaultBinaryMessenger;
+
+  void install() {
+    _messenger.setMockMessageHandler(channel, (message) async {
+      if (message == null ||
+          message.getUint8(0) != BifrostOpcode.getArguments) {
+        return null;
+      }
+      final handle = message.getInt64(8, Endian.little);
+      fetchedHandles.add(handle);
+      return const StandardMessageCodec().encodeMessage(arguments[handle]);
+    });
+  }
+
+  void uninstall() => _messenger.setMockMessageHandler(channel, null);
+
+  /// send the [message] to flutter and let it rebuild
+  Future<void> deliver(WidgetTester tester, ByteData message) async {
+    await _messenger.handlePlatformMessage(channel, message, (_) {});
+    await tester.pump();
+  }
+}
+
+/// a create message that leaves the arguments to be fetched by [handle]
+ByteData createPage(int id, String route, int handle) {
+  final routeBytes = utf8.encode(route);
+  final routeEnd = BifrostOpcode.headerSize + 4 + routeBytes.length;
+  final handleOffset = _align(routeEnd);
+  final message = ByteData(handleOffset + 8)
+    ..setUint8(0, BifrostOpcode.createPage)
+    ..setInt32(1, id, Endian.little)
+    ..setInt32(BifrostOpcode.headerSize, routeBytes.length, Endian.little)
+    ..setInt64(handleOffset, handle, Endian.little);
+  message.buffer
+      .asUint8List(BifrostOpcode.headerSize + 4, routeBytes.length)
+      .setAll(0, routeBytes);
+  return message;
+}
+
+ByteData pageEvent(int opcode, int id) => ByteData(BifrostOpcode.headerSize)
+  ..setUint8(0, opcode)
+  ..setInt32(1, id, Endian.little);
+
+ByteData batch(List<ByteData> events) {
+  var size = BifrostOpcode.headerSize;
+  for (final event in events) {
+    size = _align(size) + 8 + event.lengthInBytes;
+  }
+  final message = ByteData(size)
+    ..setUint8(0, BifrostOpcode.batch)
+    ..setInt32(1, events.length, Endian.little);
+  var offset = BifrostOpcode.headerSize;
+  for (final event in events) {
+    offset = _align(offset);
+    message.setInt32(offset, event.lengthInBytes, Endian.little);
+    offset += 8;
+    message.buffer.asUint8List(offset, event.lengthInBytes).setAll(
+        0,
+        event.buffer
+            .asUint8List(event.offsetInBytes, event.lengthInBytes));
+    offset += event.lengthInBytes;
+  }
+  return message;
+}
+
+int _align(int offset) => (offset + 7) & ~7;
+
+/// an app whose routes are generated by name
+Widget bifrostApp({int? maxLiveContainers}) {
+  return WidgetsApp(
+    color: const Color(0xFFFFFFFF),
+    builder: Bifrost.init(maxLiveContainers: maxLiveContainers),
+    onGenerateRoute: (settings) => PageRouteBuilder<void>(
+      settings: settings,
+      pageBuilder: (context, animation, secondaryAnimation) =>
+          Text('${settings.name} ${settings.arguments}'),
+    ),
+  );
+}
+
+/// the mounted container of the page [id]
+BifrostContainer containerOf(WidgetTester tester, int id) {
+  return tester
+      .widgetList<BifrostContainer>(
+          find.byType(BifrostContainer, skipOffstage: false))
+      .singleWhere((container) => container.settings.id == id);
+}